@@ -1,5 +1,7 @@
 package com.greenbite.backend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.FoodItemDTO;
 import com.greenbite.backend.dto.FoodShopDTO;
 import com.greenbite.backend.dto.UserDTO;
@@ -9,9 +11,12 @@ import com.greenbite.backend.service.FoodItemService;
 import com.greenbite.backend.service.FoodShopService;
 import com.greenbite.backend.service.UserService;
 import com.greenbite.backend.service.CouponService;
+import com.greenbite.backend.util.JsonArrayStreams;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -26,12 +31,32 @@ public class AdminPanelController {
     private final FoodShopService foodShopService;
     private final CouponService couponService;
     private final FoodItemService foodItemService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/listUsers")
     public ResponseEntity<List<UserDTO>> getAllUsers() {
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
+    @GetMapping("/listUsers/page")
+    public ResponseEntity<CursorPage<UserDTO>> getUsersPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(userService.getUsersPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Streams every user as a JSON array without building the list in memory
+    @GetMapping("/export/users")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStreams.responseBody(objectMapper, userService::exportUsers));
+    }
+
     @DeleteMapping("/deleteUser/{userId}")
     public ResponseEntity<String> deleteUser(@PathVariable Long userId) {
         userService.deleteUserById(userId);
@@ -45,6 +70,17 @@ public class AdminPanelController {
         return ResponseEntity.ok(shops);
     }
 
+    @GetMapping("/listFoodShops/page")
+    public ResponseEntity<CursorPage<FoodShopDTO>> getFoodShopsAdminPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(foodShopService.getFoodShopsAdminPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //add food shop
     @PostMapping("/addFoodShop")
     public ResponseEntity<FoodShop> addFoodShop(@RequestBody FoodShop foodShop) {
@@ -92,6 +128,25 @@ public class AdminPanelController {
         return ResponseEntity.ok(foodItems);
     }
 
+    @GetMapping("/listAllFoodItems/page")
+    public ResponseEntity<CursorPage<FoodItemDTO>> getFoodItemsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(foodItemService.getFoodItemsPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Streams every food item as a JSON array without building the list in memory
+    @GetMapping("/export/foodItems")
+    public ResponseEntity<StreamingResponseBody> exportFoodItems() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStreams.responseBody(objectMapper, foodItemService::exportFoodItems));
+    }
+
     @GetMapping("/listFoodItems/{foodShopId}")
     public ResponseEntity<List<FoodItemDTO>> getFoodItemsByShop(@PathVariable Long foodShopId) {
         List<FoodItemDTO> foodItems = foodItemService.getFoodItemsByShop(foodShopId);
@@ -1,15 +1,30 @@
 package com.greenbite.backend.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.dto.SearchSuggestionDTO;
 import com.greenbite.backend.dto.FoodShopDTO;
+import com.greenbite.backend.dto.ImportReportDTO;
+import com.greenbite.backend.service.CatalogVersions;
+import com.greenbite.backend.service.FoodItemChangeFeed;
+import com.greenbite.backend.service.FoodItemImportService;
 import com.greenbite.backend.service.FoodItemService;
+import com.greenbite.backend.service.FoodItemTagIndex;
+import com.greenbite.backend.service.HotStockService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/food-items")
@@ -17,10 +32,23 @@ import java.util.List;
 public class FoodItemController {
 
     private final FoodItemService foodItemService;
+    private final FoodItemImportService foodItemImportService;
+    private final HotStockService hotStockService;
+    private final CatalogVersions catalogVersions;
+    private final FoodItemChangeFeed changeFeed;
     private final ObjectMapper objectMapper;
 
-    public FoodItemController(FoodItemService foodItemService, ObjectMapper objectMapper) {
+    public FoodItemController(FoodItemService foodItemService,
+                              FoodItemImportService foodItemImportService,
+                              HotStockService hotStockService,
+                              CatalogVersions catalogVersions,
+                              FoodItemChangeFeed changeFeed,
+                              ObjectMapper objectMapper) {
         this.foodItemService = foodItemService;
+        this.foodItemImportService = foodItemImportService;
+        this.hotStockService = hotStockService;
+        this.catalogVersions = catalogVersions;
+        this.changeFeed = changeFeed;
         this.objectMapper = objectMapper;
     }
 
@@ -29,9 +57,27 @@ public class FoodItemController {
         return foodItemService.getAllFoodItems();
     }
 
+    // Keyset-paginated variant of /get; pass the previous page's nextCursor to continue
+    @GetMapping("/get/page")
+    public ResponseEntity<CursorPage<FoodItemDTO>> getFoodItemsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(foodItemService.getFoodItemsPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/shop/{shopId}")
-    public List<FoodItemDTO> getFoodItemsByShop(@PathVariable Long shopId) {
-        return foodItemService.getFoodItemsByShop(shopId);
+    public ResponseEntity<List<FoodItemDTO>> getFoodItemsByShop(@PathVariable Long shopId, WebRequest request) {
+        // Revalidation is answered from the version counters, before any query
+        String etag = catalogVersions.shopItemsETag(shopId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                .body(foodItemService.getFoodItemsByShop(shopId));
     }
 
     @GetMapping("/nearby/{lat}/{lon}/{radius}")
@@ -46,9 +92,91 @@ public class FoodItemController {
         return nearbyFoodItems;
     }
 
+    @GetMapping("/nearby/cache-stats")
+    public Map<String, Long> getNearbyCacheStats() {
+        return foodItemService.getNearbyCacheStats();
+    }
+
+    // Timing-wheel backlog and totals for scheduled markdowns and expiries
+    @GetMapping("/schedule/stats")
+    public Map<String, Long> getScheduleStats() {
+        return foodItemService.getScheduleStats();
+    }
+
+    // Server-sent created/updated/stock_changed/deleted events, instead of polling the listings.
+    // Filter by shopId, by a geohash tile, or by lat/lon (their tile); none streams everything.
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestParam(required = false) Long shopId,
+            @RequestParam(required = false) String tile,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon) {
+        if (tile == null && lat != null && lon != null) {
+            tile = FoodItemChangeFeed.tileOf(lat, lon);
+        }
+        try {
+            return ResponseEntity.ok(changeFeed.subscribe(shopId, tile));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/changes/stats")
+    public Map<String, Long> getChangeFeedStats() {
+        return changeFeed.stats();
+    }
+
+    // all: every tag must match, any: at least one must; both take comma-separated tags
+    @GetMapping("/tags/filter")
+    public ResponseEntity<CursorPage<FoodItemDTO>> filterByTags(
+            @RequestParam(required = false) List<String> all,
+            @RequestParam(required = false) List<String> any,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Long shopId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            FoodItemTagIndex.Filter filter = new FoodItemTagIndex.Filter(all, any, category, shopId);
+            return ResponseEntity.ok(foodItemService.getFoodItemsByTags(filter, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/search")
+    public List<FoodItemDTO> searchFoodItems(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return foodItemService.searchFoodItems(q, limit);
+    }
+
+    @GetMapping("/search/autocomplete")
+    public List<SearchSuggestionDTO> autocompleteFoodItems(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return foodItemService.autocompleteFoodItems(q, limit);
+    }
+
+    @GetMapping("/tags")
+    public Map<String, Long> getTagCounts() {
+        return foodItemService.getTagCounts();
+    }
+
+    // Item counts per category for the browse screen; pass lat/lon/radius to count nearby shops only
+    @GetMapping("/facets/categories")
+    public Map<String, Long> getCategoryFacets(
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon,
+            @RequestParam(required = false) Double radius) {
+        return foodItemService.getCategoryFacets(lat, lon, radius);
+    }
+
     @GetMapping("/category/{category}")
-    public List<FoodItemDTO> getFoodItemsByCategory(@PathVariable String category) {
-        return foodItemService.getFoodItemsByCategory(category);
+    public ResponseEntity<List<FoodItemDTO>> getFoodItemsByCategory(@PathVariable String category, WebRequest request) {
+        String etag = catalogVersions.categoryETag(category);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                .body(foodItemService.getFoodItemsByCategory(category));
     }
 
     @PostMapping("/list-food-item")
@@ -63,6 +191,34 @@ public class FoodItemController {
         return ResponseEntity.ok(savedFoodItem);
     }
 
+    // Bulk listing: a CSV file with a header row (name, description, price, quantity, category, tags)
+    // or a JSON array of items. Bad lines are listed in the report; the others are imported.
+    @PostMapping("/import/{shopId}")
+    public ResponseEntity<ImportReportDTO> importFoodItems(
+            @PathVariable Long shopId,
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(required = false) String format) throws IOException {
+        FoodItemImportService.Format importFormat;
+        if (format != null) {
+            try {
+                importFormat = FoodItemImportService.Format.valueOf(format.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        } else if ("application/json".equals(file.getContentType())
+                || (file.getOriginalFilename() != null && file.getOriginalFilename().toLowerCase().endsWith(".json"))) {
+            importFormat = FoodItemImportService.Format.JSON;
+        } else {
+            importFormat = FoodItemImportService.Format.CSV;
+        }
+
+        try (InputStream input = file.getInputStream()) {
+            return ResponseEntity.ok(foodItemImportService.importFoodItems(shopId, input, importFormat));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteFoodItem(@PathVariable Long id) {
         foodItemService.deleteFoodItem(id);
@@ -76,8 +232,43 @@ public class FoodItemController {
         }
 
         // Call the service to update the food item (no photo handling)
-        FoodItemDTO updatedFoodItem = foodItemService.updateFoodItem(foodItemDTO);
-        return ResponseEntity.ok(updatedFoodItem);
+        try {
+            FoodItemDTO updatedFoodItem = foodItemService.updateFoodItem(foodItemDTO);
+            return ResponseEntity.ok(updatedFoodItem);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Hot mode for flash drops: orders for the item are decided by in-memory counters
+    @PostMapping("/{id}/hot")
+    public ResponseEntity<Map<String, Object>> markHot(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(Map.of("itemId", id, "available", hotStockService.markHot(id)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}/hot")
+    public ResponseEntity<Map<String, Object>> coolDown(@PathVariable Long id) {
+        try {
+            hotStockService.coolDown(id);
+            return ResponseEntity.ok().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/hot")
+    public Map<Long, Integer> getHotItems() {
+        return hotStockService.availableByItem();
+    }
+
+    // Hot items, orders waiting to be written back to food_items and failed write-backs
+    @GetMapping("/hot/stats")
+    public Map<String, Long> getHotStockStats() {
+        return hotStockService.stats();
     }
 
 }
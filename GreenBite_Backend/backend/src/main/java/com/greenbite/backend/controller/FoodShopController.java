@@ -1,11 +1,16 @@
 package com.greenbite.backend.controller;
 
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.FoodShopDTO;
+import com.greenbite.backend.dto.NearbyShopDTO;
 import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.service.CatalogVersions;
 import com.greenbite.backend.service.FoodShopService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -17,6 +22,8 @@ import java.util.List;
 public class FoodShopController {
     @Autowired
     private FoodShopService foodShopService;
+    @Autowired
+    private CatalogVersions catalogVersions;
 
     @PostMapping("/add")
     public ResponseEntity<FoodShop> addFoodShop(@RequestBody FoodShop foodShop) {
@@ -24,9 +31,14 @@ public class FoodShopController {
         return ResponseEntity.ok(savedShop);
     }
     @GetMapping("/all")
-    public ResponseEntity<List<FoodShopDTO>> getAllFoodShops() {
+    public ResponseEntity<List<FoodShopDTO>> getAllFoodShops(WebRequest request) {
+        // The tag comes from memory; a matching If-None-Match is answered with a 304 as is
+        String etag = catalogVersions.allShopsETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<FoodShopDTO> shops = foodShopService.getAllFoodShops();
-        return ResponseEntity.ok(shops);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(shops);
     }
     @GetMapping("/{id}")
     public FoodShopDTO getFoodShopById(@PathVariable Long id) {
@@ -58,5 +70,18 @@ public class FoodShopController {
         return nearbyShops;
     }
 
+    @GetMapping("/nearest")
+    public ResponseEntity<CursorPage<NearbyShopDTO>> findNearestShops(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5") double radius,
+            @RequestParam(defaultValue = "20") int k,
+            @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(foodShopService.findNearestShops(lat, lon, radius, k, cursor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
 }
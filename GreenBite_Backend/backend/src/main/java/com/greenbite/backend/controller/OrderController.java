@@ -1,14 +1,32 @@
 package com.greenbite.backend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.OrderDTO;
+import com.greenbite.backend.dto.OrderSummaryDTO;
+import com.greenbite.backend.dto.PendingOrderDTO;
 import com.greenbite.backend.model.Order;
+import com.greenbite.backend.service.InsufficientStockException;
+import com.greenbite.backend.service.OrderIdempotencyService;
+import com.greenbite.backend.service.OrderIntakeFullException;
+import com.greenbite.backend.service.OrderIntakeService;
+import com.greenbite.backend.service.OrderItemBackfill;
 import com.greenbite.backend.service.OrderService;
-import org.aspectj.weaver.ast.Or;
+import com.greenbite.backend.service.ShopOrderBoard;
+import com.greenbite.backend.util.JsonArrayStreams;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -16,17 +34,98 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIdempotencyService orderIdempotencyService;
+    private final OrderIntakeService orderIntakeService;
+    private final ShopOrderBoard shopOrderBoard;
+    private final OrderItemBackfill orderItemBackfill;
+    private final ObjectMapper objectMapper;
 
-    public OrderController(OrderService orderService) {
+    private static final long MAX_STATUS_WAIT_MS = 30_000;
+
+    public OrderController(OrderService orderService, OrderIdempotencyService orderIdempotencyService,
+                           OrderIntakeService orderIntakeService, ShopOrderBoard shopOrderBoard,
+                           OrderItemBackfill orderItemBackfill, ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.orderIdempotencyService = orderIdempotencyService;
+        this.orderIntakeService = orderIntakeService;
+        this.shopOrderBoard = shopOrderBoard;
+        this.orderItemBackfill = orderItemBackfill;
+        this.objectMapper = objectMapper;
     }
 
+    // With an Idempotency-Key header, a retried request returns the order the first one created
     @PostMapping("/confirm")
-    public ResponseEntity<Order> confirmOrder(@RequestBody OrderDTO orderDTO) {
-        System.out.println("Order DTO: "+orderDTO);
-        Order order = orderService.createOrder(orderDTO);
-        return ResponseEntity.ok(order);
+    public ResponseEntity<?> confirmOrder(
+            @RequestBody OrderDTO orderDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        try {
+            if (idempotencyKey == null) {
+                return ResponseEntity.ok(orderService.createOrder(orderDTO));
+            }
+            OrderIdempotencyService.Result result = orderIdempotencyService.createOrder(idempotencyKey, orderDTO);
+            return ResponseEntity.ok()
+                    .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                    .body(result.order());
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Insufficient stock", "itemIds", e.getItemIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+    // Asynchronous variant of /confirm: answers 202 with a pending id straight away and the
+    // order is placed by the intake workers; follow it with /pending/{pendingId}
+    @PostMapping("/submit")
+    public ResponseEntity<?> submitOrder(@RequestBody OrderDTO orderDTO) {
+        if (!orderIntakeService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Asynchronous intake is disabled"));
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(orderIntakeService.submit(orderDTO));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (OrderIntakeFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "1")
+                    .body(Map.of("error", e.getMessage()));
+        }
     }
+
+    // With waitMs the request is held (without a thread) until the order is placed or the wait runs out
+    @GetMapping("/pending/{pendingId}")
+    public DeferredResult<ResponseEntity<PendingOrderDTO>> getPendingOrder(
+            @PathVariable String pendingId,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        long wait = Math.min(Math.max(waitMs, 0), MAX_STATUS_WAIT_MS);
+        DeferredResult<ResponseEntity<PendingOrderDTO>> result = new DeferredResult<>(wait > 0 ? wait : null);
+        PendingOrderDTO status = orderIntakeService.status(pendingId);
+        if (status == null) {
+            result.setResult(ResponseEntity.notFound().build());
+            return result;
+        }
+        CompletableFuture<PendingOrderDTO> done = wait > 0 ? orderIntakeService.whenDone(pendingId) : null;
+        if (done == null) {
+            result.setResult(ResponseEntity.ok(status));
+            return result;
+        }
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(status)));
+        done.thenAccept(finalStatus -> result.setResult(ResponseEntity.ok(finalStatus)));
+        return result;
+    }
+
+    @GetMapping("/intake/stats")
+    public Map<String, Long> getIntakeStats() {
+        return orderIntakeService.stats();
+    }
+
+    // Lines copied by the order_items backfill and orders whose JSON could not be read
+    @GetMapping("/order-items-backfill/stats")
+    public Map<String, Long> getOrderItemsBackfillStats() {
+        return orderItemBackfill.stats();
+    }
+
     @GetMapping("/latest")
     public ResponseEntity<Map<String, Object>> getLatestOrder() {
         Order latestOrder = orderService.getLatestOrder();
@@ -54,12 +153,73 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Live order board: a snapshot of the shop's open orders, then each new order and
+    // status change as it is committed
+    @GetMapping(value = "/shop_order/{shopId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrdersByShopId(@PathVariable Long shopId) {
+        try {
+            return ResponseEntity.ok(shopOrderBoard.subscribe(shopId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/shop_order/stream/stats")
+    public Map<String, Long> getOrderBoardStats() {
+        return shopOrderBoard.stats();
+    }
+
+    // Streaming exports: orders are written one chunk at a time instead of as one list
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStreams.responseBody(objectMapper, generator -> orderService.exportOrders(null, generator)));
+    }
+
+    @GetMapping("/shop_order/{shopId}/export")
+    public ResponseEntity<StreamingResponseBody> exportOrdersByShopId(@PathVariable Long shopId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStreams.responseBody(objectMapper, generator -> orderService.exportOrders(shopId, generator)));
+    }
+
     @GetMapping("/user_orders/{userId}")
     public ResponseEntity<List<Order>> getOrdersByUserId(@PathVariable Long userId) {
         List<Order> orders = orderService.getOrdersByCustomerId(userId);
         return ResponseEntity.ok(orders);
     }
 
+    // Paged order history within a time window, newest first; from and to are ISO date-times
+    // and default to the last 90 days. Pass the previous page's nextCursor to continue.
+    @GetMapping("/user_orders/{userId}/history")
+    public ResponseEntity<CursorPage<OrderSummaryDTO>> getOrderHistoryByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(orderService.getCustomerOrderHistory(userId, parseDateTime(from), parseDateTime(to), cursor, size));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/shop_order/{shopId}/history")
+    public ResponseEntity<CursorPage<OrderSummaryDTO>> getOrderHistoryByShopId(
+            @PathVariable Long shopId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(orderService.getShopOrderHistory(shopId, parseDateTime(from), parseDateTime(to), cursor, size));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/total_calories/{userId}")
     public ResponseEntity<Float> getTotalCaloriesConsumed(@PathVariable Long userId) {
         float totalCalories = orderService.getTotalCaloriesConsumed(userId);
@@ -72,4 +232,7 @@ public class OrderController {
         return ResponseEntity.ok(updatedOrder);
     }
 
+    private static LocalDateTime parseDateTime(String value) {
+        return value == null || value.isBlank() ? null : LocalDateTime.parse(value);
+    }
 }
@@ -4,8 +4,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.greenbite.backend.dto.AddPointsDTO;
 import com.greenbite.backend.dto.LocationUpdateDTO;
 import com.greenbite.backend.dto.UserDTO;
-import com.greenbite.backend.model.User;
-import com.greenbite.backend.repository.UserRepository;
 import com.greenbite.backend.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,11 +19,9 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
-    private final UserRepository userRepository;
 
-    public UserController(UserService userService, UserRepository userRepository) {
+    public UserController(UserService userService) {
         this.userService = userService;
-        this.userRepository = userRepository;
     }
 
     // Get user by ID
@@ -67,25 +63,17 @@ public class UserController {
     }
     @PutMapping("/updateLocation")
     public ResponseEntity<String> updateUserLocation(@RequestBody LocationUpdateDTO dto) {
-        User user = userRepository.findById(dto.getUserId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        user.setLatitude(dto.getLatitude());
-        user.setLongitude(dto.getLongitude());
-        userRepository.save(user);
-
+        userService.updateUserLocation(dto);
         return ResponseEntity.ok("User location updated successfully");
     }
+    // Rows written by the location buffer and failed batches, retried on the next flush
+    @GetMapping("/location/stats")
+    public Map<String, Long> getLocationBufferStats() {
+        return userService.getLocationBufferStats();
+    }
     @GetMapping("/location/{userId}")
     public ResponseEntity<Map<String, Double>> getUserLocation(@PathVariable Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Map<String, Double> location = new HashMap<>();
-        location.put("latitude", user.getLatitude());
-        location.put("longitude", user.getLongitude());
-
-        return ResponseEntity.ok(location);
+        return ResponseEntity.ok(userService.getUserLocation(userId));
     }
 
 }
@@ -9,6 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,6 +31,14 @@ public class FoodItemDTO {
 
     private String category;
 
+    private LocalDateTime expiresAt;
+    private LocalDateTime markdownAt;
+    private Double markdownPrice;
+
+    // On update, expiresAt/markdownAt/markdownPrice left out keep their current values;
+    // true clears all three first, before any supplied ones are applied
+    private Boolean clearSchedule;
+
     // Custom deserializer for tags
     public static class TagsDeserializer extends JsonDeserializer<List<String>> {
         @Override
@@ -0,0 +1,27 @@
+package com.greenbite.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReportDTO {
+    private Long shopId;
+    private int imported;
+    private int rejected;
+    private List<LineError> errors = new ArrayList<>(); // capped; rejected holds the full count
+    private boolean errorsTruncated;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class LineError {
+        private int line; // CSV line number, or 1-based position in a JSON array
+        private String message;
+    }
+}
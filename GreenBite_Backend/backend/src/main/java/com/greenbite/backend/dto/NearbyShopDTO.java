@@ -0,0 +1,19 @@
+package com.greenbite.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearbyShopDTO {
+    private Long shopId;
+    private String name;
+    private String photo;
+    private String address;
+    private String phoneNumber;
+    private double latitude;
+    private double longitude;
+    private double distanceKm; // Distance from the search point
+}
@@ -0,0 +1,22 @@
+package com.greenbite.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// An order history row without the order lines, selected straight into this class
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryDTO {
+    private Long id;
+    private Long customerId;
+    private Long shopId;
+    private String status;
+    private String paymentMethod;
+    private float totalAmount;
+    private float totalCalories;
+    private LocalDateTime orderDate;
+}
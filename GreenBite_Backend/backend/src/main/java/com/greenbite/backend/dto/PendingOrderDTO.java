@@ -0,0 +1,18 @@
+package com.greenbite.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PendingOrderDTO {
+    private String pendingId;
+    private String status; // PENDING, CONFIRMED or REJECTED
+    private Long orderId; // set once CONFIRMED
+    private String error; // set when REJECTED
+    private List<Long> itemIds; // items without enough stock, when that was the reason
+}
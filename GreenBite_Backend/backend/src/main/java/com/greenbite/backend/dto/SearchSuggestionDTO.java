@@ -0,0 +1,14 @@
+package com.greenbite.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchSuggestionDTO {
+    private Long itemId;
+    private String name;
+    private double score;
+}
@@ -0,0 +1,9 @@
+package com.greenbite.backend.event;
+
+public enum ChangeType {
+    CREATED,
+    IMPORTED, // created by a bulk import rather than a single listing
+    UPDATED,
+    DELETED,
+    STOCK_CHANGED
+}
@@ -0,0 +1,22 @@
+package com.greenbite.backend.event;
+
+// Published by the catalog and order write paths. previous is null for CREATED,
+// current is null for DELETED.
+public record FoodItemChangedEvent(ChangeType type, FoodItemSnapshot previous, FoodItemSnapshot current) {
+
+    public Long itemId() {
+        return current != null ? current.id() : previous.id();
+    }
+
+    public Long shopId() {
+        return current != null ? current.shopId() : previous.shopId();
+    }
+
+    public boolean wasInStock() {
+        return previous != null && previous.inStock();
+    }
+
+    public boolean isInStock() {
+        return current != null && current.inStock();
+    }
+}
@@ -0,0 +1,33 @@
+package com.greenbite.backend.event;
+
+import com.greenbite.backend.model.FoodItem;
+
+// Immutable copy of a FoodItem row, taken at the moment an event is published
+public record FoodItemSnapshot(
+        Long id,
+        String name,
+        String description,
+        Double price,
+        Integer quantity,
+        String tags,
+        Long shopId,
+        String category
+) {
+
+    public static FoodItemSnapshot of(FoodItem foodItem) {
+        return new FoodItemSnapshot(
+                foodItem.getId(),
+                foodItem.getName(),
+                foodItem.getDescription(),
+                foodItem.getPrice(),
+                foodItem.getQuantity(),
+                foodItem.getTags(),
+                foodItem.getShopId(),
+                foodItem.getCategory()
+        );
+    }
+
+    public boolean inStock() {
+        return quantity != null && quantity > 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.greenbite.backend.event;
+
+// Coordinates are null when the shop did not exist before (CREATED) or after (DELETED)
+public record FoodShopChangedEvent(
+        ChangeType type,
+        Long shopId,
+        Double previousLatitude,
+        Double previousLongitude,
+        Double latitude,
+        Double longitude
+) {
+
+    public boolean moved() {
+        return previousLatitude != null && latitude != null
+                && (!previousLatitude.equals(latitude) || !previousLongitude.equals(longitude));
+    }
+}
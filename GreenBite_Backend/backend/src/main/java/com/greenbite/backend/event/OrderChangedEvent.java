@@ -0,0 +1,16 @@
+package com.greenbite.backend.event;
+
+import com.greenbite.backend.model.Order;
+
+// Published by OrderService when an order is placed (CREATED) or its status changes
+// (UPDATED). previousStatus is null for CREATED.
+public record OrderChangedEvent(ChangeType type, Order order, String previousStatus) {
+
+    public Long orderId() {
+        return order.getId();
+    }
+
+    public Long shopId() {
+        return order.getShopId();
+    }
+}
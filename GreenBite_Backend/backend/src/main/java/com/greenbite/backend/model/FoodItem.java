@@ -3,6 +3,8 @@ package com.greenbite.backend.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "food_items")
 @Getter
@@ -27,4 +29,9 @@ public class FoodItem {
 
     private String category; // New field for category
 
+    // Optional schedule: at markdownAt the price drops to markdownPrice, at expiresAt the item stops selling
+    private LocalDateTime expiresAt;
+    private LocalDateTime markdownAt;
+    private Double markdownPrice;
+
 }
\ No newline at end of file
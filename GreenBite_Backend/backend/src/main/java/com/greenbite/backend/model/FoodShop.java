@@ -8,7 +8,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "food_shops")
+@Table(name = "food_shops", indexes = {
+        @Index(name = "idx_food_shops_lat_lon", columnList = "latitude, longitude")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -7,7 +7,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// InnoDB appends the primary key to each secondary index, so both also serve the
+// (order_date, id) keyset of the history pages
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_shop_date", columnList = "shop_id, order_date"),
+        @Index(name = "idx_orders_customer_date", columnList = "customer_id, order_date")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_orders_customer_idempotency_key", columnNames = {"customer_id", "idempotency_key"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,4 +37,13 @@ public class Order {
 
     @Column(columnDefinition = "TEXT") // Store JSON as text
     private String orderedItemsJson;
+
+    // false while lines taken from in-memory hot stock are not yet written to food_items;
+    // null for orders with no hot lines
+    private Boolean stockSettled;
+
+    // Idempotency-Key header of the request that created the order, if it sent one;
+    // unique per customer
+    @Column(length = 100)
+    private String idempotencyKey;
 }
@@ -0,0 +1,33 @@
+package com.greenbite.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// One line of an order. Written with the order, in the same transaction, so item-level
+// sales can be aggregated in SQL instead of parsing orders.ordered_items_json
+@Entity
+@Table(name = "order_items", indexes = {
+        @Index(name = "idx_order_items_order", columnList = "order_id"),
+        @Index(name = "idx_order_items_item", columnList = "item_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    private Double unitPrice;
+}
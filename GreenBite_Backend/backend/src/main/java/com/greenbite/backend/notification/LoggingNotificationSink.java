@@ -0,0 +1,27 @@
+package com.greenbite.backend.notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Default sink until a push/email channel is wired in. Drops the alerts; with
+// food-items.listing-notifications.log-batches=true it prints one line per batch instead.
+@Component
+public class LoggingNotificationSink implements NotificationSink {
+
+    private final boolean logBatches;
+
+    public LoggingNotificationSink(@Value("${food-items.listing-notifications.log-batches:false}") boolean logBatches) {
+        this.logBatches = logBatches;
+    }
+
+    @Override
+    public void send(List<NearbyListingNotification> batch) {
+        if (logBatches && !batch.isEmpty()) {
+            NearbyListingNotification first = batch.get(0);
+            System.out.println("Notifying " + batch.size() + " users about item " + first.itemId()
+                    + " (" + first.itemName() + ") from shop " + first.shopId());
+        }
+    }
+}
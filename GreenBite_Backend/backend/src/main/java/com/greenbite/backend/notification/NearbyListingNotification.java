@@ -0,0 +1,5 @@
+package com.greenbite.backend.notification;
+
+// One "surplus food near you" alert for one user
+public record NearbyListingNotification(long userId, Long itemId, Long shopId, String itemName, double distanceKm) {
+}
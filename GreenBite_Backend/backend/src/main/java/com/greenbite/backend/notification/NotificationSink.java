@@ -0,0 +1,10 @@
+package com.greenbite.backend.notification;
+
+import java.util.List;
+
+// Delivery channel for nearby listing alerts; receives them in batches.
+// The batch list is reused by the caller once send returns.
+public interface NotificationSink {
+
+    void send(List<NearbyListingNotification> batch);
+}
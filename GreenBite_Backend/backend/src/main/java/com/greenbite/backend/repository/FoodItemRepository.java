@@ -1,10 +1,18 @@
 package com.greenbite.backend.repository;
 
 import com.greenbite.backend.model.FoodItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface FoodItemRepository extends JpaRepository<FoodItem, Long> {
@@ -12,6 +20,47 @@ public interface FoodItemRepository extends JpaRepository<FoodItem, Long> {
     List<FoodItem> findByShopId(Long shopId);
 
     List<FoodItem> findByCategory(String category); // New method to filter by category
+
+    // Keyset page: the rows after the cursor id, in id order
+    List<FoodItem> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Rows of [id, tags, category, shopId] for FoodItemTagIndex
+    @Query("SELECT f.id, f.tags, f.category, f.shopId FROM FoodItem f")
+    List<Object[]> findAllTagRows();
+
+    // Rows of [id, name, description, category] for FoodItemSearchIndex
+    @Query("SELECT f.id, f.name, f.description, f.category FROM FoodItem f")
+    List<Object[]> findAllSearchRows();
+
+    // Rows of [id, category, shopId] for the in-stock items CategoryFacetCounter counts
+    @Query("SELECT f.id, f.category, f.shopId FROM FoodItem f WHERE f.quantity > 0 AND f.category IS NOT NULL")
+    List<Object[]> findInStockFacetRows();
+
+    // Rows of [shopId, category, count], for reconciling CategoryFacetCounter
+    @Query("SELECT f.shopId, f.category, COUNT(f) FROM FoodItem f WHERE f.quantity > 0 AND f.category IS NOT NULL " +
+            "GROUP BY f.shopId, f.category")
+    List<Object[]> countInStockByShopAndCategory();
+
+    // Rows of [id, quantity, expiresAt, markdownAt, markdownPrice] with a pending markdown or expiry,
+    // for FoodItemExpiryScheduler
+    @Query("SELECT f.id, f.quantity, f.expiresAt, f.markdownAt, f.markdownPrice FROM FoodItem f " +
+            "WHERE f.markdownAt IS NOT NULL OR (f.expiresAt IS NOT NULL AND f.quantity > 0)")
+    List<Object[]> findScheduleRows();
+
+    // Forward-only cursor for exports; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT f FROM FoodItem f ORDER BY f.id")
+    Stream<FoodItem> streamAll();
+
+    // In-stock items of the given shops, as [FoodItem, shop name, shop latitude, shop longitude] rows
+    @Query("SELECT f, s.name, s.latitude, s.longitude FROM FoodItem f JOIN FoodShop s ON s.id = f.shopId " +
+            "WHERE f.shopId IN :shopIds AND f.quantity > 0")
+    List<Object[]> findInStockWithShopByShopIdIn(@Param("shopIds") Collection<Long> shopIds);
+
+    // In-stock items with the given ids, as [FoodItem, shop name] rows
+    @Query("SELECT f, s.name FROM FoodItem f JOIN FoodShop s ON s.id = f.shopId " +
+            "WHERE f.id IN :ids AND f.quantity > 0")
+    List<Object[]> findInStockWithShopNameByIdIn(@Param("ids") Collection<Long> ids);
 }
 
 
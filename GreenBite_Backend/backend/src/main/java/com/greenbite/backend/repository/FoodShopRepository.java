@@ -1,9 +1,29 @@
 package com.greenbite.backend.repository;
 
 import com.greenbite.backend.model.FoodShop;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface FoodShopRepository extends JpaRepository<FoodShop, Long> {
+
+    // Candidate rows for a radius search, served by idx_food_shops_lat_lon
+    @Query("SELECT s FROM FoodShop s WHERE s.latitude BETWEEN :minLat AND :maxLat AND s.longitude BETWEEN :minLon AND :maxLon")
+    List<FoodShop> findWithinBoundingBox(@Param("minLat") double minLat,
+                                         @Param("maxLat") double maxLat,
+                                         @Param("minLon") double minLon,
+                                         @Param("maxLon") double maxLon);
+
+    // Rows of [id, name, photo, latitude, longitude], for ShopSummaryCache
+    @Query("SELECT s.id, s.name, s.photo, s.latitude, s.longitude FROM FoodShop s WHERE s.id IN :ids")
+    List<Object[]> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset page: the rows after the cursor id, in id order
+    List<FoodShop> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
@@ -0,0 +1,23 @@
+package com.greenbite.backend.repository;
+
+import com.greenbite.backend.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    List<OrderItem> findByOrderId(Long orderId);
+
+    // Rows of (itemId, revenue) for one shop's orders in the period
+    @Query("SELECT oi.itemId, SUM(oi.quantity * oi.unitPrice) FROM OrderItem oi JOIN Order o ON o.id = oi.orderId " +
+            "WHERE o.shopId = :shopId AND o.orderDate BETWEEN :startDate AND :endDate GROUP BY oi.itemId")
+    List<Object[]> sumRevenueByItem(@Param("shopId") Long shopId,
+                                    @Param("startDate") LocalDateTime startDate,
+                                    @Param("endDate") LocalDateTime endDate);
+}
@@ -1,11 +1,21 @@
 package com.greenbite.backend.repository;
 
+import com.greenbite.backend.dto.OrderSummaryDTO;
 import com.greenbite.backend.model.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -14,5 +24,41 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByShopIdAndOrderDateBetween(Long shopId, LocalDateTime startDate, LocalDateTime endDate);
     List<Order> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     Order findTopByOrderByOrderDateDesc();
+    Optional<Order> findByCustomerIdAndIdempotencyKey(Long customerId, String idempotencyKey);
+
+    // closedStatuses must be lower case
+    @Query("SELECT o FROM Order o WHERE o.shopId = :shopId AND (o.status IS NULL OR LOWER(o.status) NOT IN :closedStatuses) " +
+            "ORDER BY o.orderDate, o.id")
+    List<Order> findOpenByShopId(@Param("shopId") Long shopId, @Param("closedStatuses") Collection<String> closedStatuses);
+
+    // History pages, newest first, within [from, to) and after the (beforeDate, beforeId) keyset
+    @Query("SELECT new com.greenbite.backend.dto.OrderSummaryDTO(o.id, o.customerId, o.shopId, o.status, o.paymentMethod, " +
+            "o.totalAmount, o.totalCalories, o.orderDate) FROM Order o " +
+            "WHERE o.customerId = :customerId AND o.orderDate >= :from AND o.orderDate < :to " +
+            "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummaryDTO> findCustomerHistory(@Param("customerId") Long customerId,
+                                              @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                              @Param("beforeDate") LocalDateTime beforeDate, @Param("beforeId") Long beforeId,
+                                              Limit limit);
+
+    @Query("SELECT new com.greenbite.backend.dto.OrderSummaryDTO(o.id, o.customerId, o.shopId, o.status, o.paymentMethod, " +
+            "o.totalAmount, o.totalCalories, o.orderDate) FROM Order o " +
+            "WHERE o.shopId = :shopId AND o.orderDate >= :from AND o.orderDate < :to " +
+            "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummaryDTO> findShopHistory(@Param("shopId") Long shopId,
+                                          @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                          @Param("beforeDate") LocalDateTime beforeDate, @Param("beforeId") Long beforeId,
+                                          Limit limit);
+
+    // Forward-only cursors for exports; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT o FROM Order o ORDER BY o.id")
+    Stream<Order> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT o FROM Order o WHERE o.shopId = :shopId ORDER BY o.id")
+    Stream<Order> streamByShopId(@Param("shopId") Long shopId);
 
 }
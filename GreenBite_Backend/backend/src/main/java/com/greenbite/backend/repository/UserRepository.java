@@ -1,10 +1,17 @@
 package com.greenbite.backend.repository;
 
 import com.greenbite.backend.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
@@ -12,5 +19,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByVerificationCode(String verificationCode);
     Optional<User> findByUsernameOrEmail(String username, String email);
 
+    // Rows of [id, latitude, longitude] for users with a known location
+    @Query("SELECT u.id, u.latitude, u.longitude FROM User u WHERE u.latitude IS NOT NULL AND u.longitude IS NOT NULL")
+    List<Object[]> findAllLocations();
+
+    // Keyset page: the rows after the cursor id, in id order
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Forward-only cursor for exports; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAll();
+
     Long id(Long id);
 }
\ No newline at end of file
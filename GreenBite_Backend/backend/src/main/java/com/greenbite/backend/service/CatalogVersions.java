@@ -0,0 +1,83 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.event.FoodShopChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Version counters behind the ETags of the catalog listings. Every write bumps the
+// versions of the listings it can appear in, after its transaction commits, so a tag is
+// never handed out for data older than itself. Versions come from one sequence and the
+// tags carry a per-process epoch, so tags from before a restart never match.
+@Component
+public class CatalogVersions {
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong shopsVersion = new AtomicLong();
+    private final Map<Long, Long> shopItemVersions = new ConcurrentHashMap<>();
+    private final Map<String, Long> categoryVersions = new ConcurrentHashMap<>();
+
+    // /api/shop/all
+    public String allShopsETag() {
+        return etag("shops-" + shopsVersion.get());
+    }
+
+    // /api/food-items/shop/{shopId}; the listing carries the shop's name
+    public String shopItemsETag(Long shopId) {
+        return etag("shop-" + shopId + "-" + shopItemVersions.getOrDefault(shopId, 0L) + "-" + shopsVersion.get());
+    }
+
+    // /api/food-items/category/{category}; the listing carries shop names
+    public String categoryETag(String category) {
+        String key = categoryKey(category);
+        return etag("category-" + Integer.toHexString(key.hashCode()) + "-"
+                + categoryVersions.getOrDefault(key, 0L) + "-" + shopsVersion.get());
+    }
+
+    // For writes that bypass the events, like the hot stock flusher
+    public void itemChanged(Long shopId, String category) {
+        long version = sequence.incrementAndGet();
+        if (shopId != null) {
+            shopItemVersions.merge(shopId, version, Math::max);
+        }
+        if (category != null) {
+            categoryVersions.merge(categoryKey(category), version, Math::max);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodItemChanged(FoodItemChangedEvent event) {
+        bump(event.previous());
+        bump(event.current());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodShopChanged(FoodShopChangedEvent event) {
+        shopsVersion.accumulateAndGet(sequence.incrementAndGet(), Math::max);
+    }
+
+    private void bump(FoodItemSnapshot item) {
+        if (item != null) {
+            itemChanged(item.shopId(), item.category());
+        }
+    }
+
+    // One counter for every spelling MySQL treats as the same category: its collation ignores
+    // case and trailing spaces. Trimming leading spaces too can only merge extra spellings,
+    // which costs an extra invalidation, never a stale one.
+    static String categoryKey(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private String etag(String version) {
+        return "\"" + version + "-" + epoch + "\"";
+    }
+}
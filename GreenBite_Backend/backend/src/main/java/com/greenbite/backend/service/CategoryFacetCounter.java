@@ -0,0 +1,160 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.repository.FoodItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// In-stock item counts per category and per shop x category. Every write path reaches it
+// through FoodItemChangedEvent; counts are derived from a per-item state map so a replayed
+// or out-of-order event cannot count an item twice. Counts are keyed by
+// CatalogVersions.categoryKey, so "Bakery" and "bakery " are one facet, as they are one
+// group to MySQL; the first spelling seen is the one shown.
+@Component
+public class CategoryFacetCounter {
+
+    private record Facet(Long shopId, String key) {
+    }
+
+    private final FoodItemRepository foodItemRepository;
+    private final HotStockService hotStockService;
+
+    private final Map<Long, Facet> countedItems = new HashMap<>();
+    private final Map<String, Long> categoryCounts = new HashMap<>();
+    private final Map<String, String> labels = new HashMap<>();
+    private final Map<Long, Map<String, Long>> shopCategoryCounts = new HashMap<>();
+    // Bumped on every change so reconciliation can tell whether the database read raced a write
+    private long version;
+    private long reconciliationMismatches;
+
+    public CategoryFacetCounter(FoodItemRepository foodItemRepository, HotStockService hotStockService) {
+        this.foodItemRepository = foodItemRepository;
+        this.hotStockService = hotStockService;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<Object[]> rows = foodItemRepository.findInStockFacetRows();
+        synchronized (this) {
+            countedItems.clear();
+            categoryCounts.clear();
+            labels.clear();
+            shopCategoryCounts.clear();
+            for (Object[] row : rows) {
+                count((Long) row[0], (Long) row[2], (String) row[1]);
+            }
+            version++;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFoodItemChanged(FoodItemChangedEvent event) {
+        uncount(event.itemId());
+        FoodItemSnapshot current = event.current();
+        if (current != null && current.inStock()) {
+            count(current.id(), current.shopId(), current.category());
+        }
+        version++;
+    }
+
+    public synchronized Map<String, Long> categoryCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        categoryCounts.forEach((key, count) -> counts.put(labels.get(key), count));
+        return counts;
+    }
+
+    // Counts restricted to the given shops, e.g. the ones within the user's radius
+    public synchronized Map<String, Long> categoryCounts(Collection<Long> shopIds) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Long shopId : shopIds) {
+            Map<String, Long> shopCounts = shopCategoryCounts.get(shopId);
+            if (shopCounts != null) {
+                shopCounts.forEach((key, count) -> counts.merge(labels.get(key), count, Long::sum));
+            }
+        }
+        return counts;
+    }
+
+    public synchronized long reconciliationMismatches() {
+        return reconciliationMismatches;
+    }
+
+    // Compares the shop x category counters with a GROUP BY over the table and rebuilds
+    // them if they drifted (e.g. a write that bypassed the service layer). Skipped while hot
+    // stock is taken in memory but not yet written to food_items: the events already count
+    // it and the quantity column does not yet, so the table is the stale side.
+    @Scheduled(initialDelayString = "${food-items.facets.reconcile-interval-ms:600000}",
+            fixedDelayString = "${food-items.facets.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (hotStockService.hasUnsettledStock()) {
+            return;
+        }
+        long versionBefore;
+        synchronized (this) {
+            versionBefore = version;
+        }
+        Map<Long, Map<String, Long>> expected = new HashMap<>();
+        for (Object[] row : foodItemRepository.countInStockByShopAndCategory()) {
+            expected.computeIfAbsent((Long) row[0], key -> new HashMap<>())
+                    .merge(CatalogVersions.categoryKey((String) row[1]), (Long) row[2], Long::sum);
+        }
+
+        boolean drifted;
+        synchronized (this) {
+            if (version != versionBefore || hotStockService.hasUnsettledStock()) {
+                // A write landed while the query ran; check again next round
+                return;
+            }
+            drifted = !expected.equals(shopCategoryCounts);
+            if (drifted) {
+                reconciliationMismatches++;
+            }
+        }
+        if (drifted) {
+            rebuild();
+        }
+    }
+
+    private void count(Long itemId, Long shopId, String category) {
+        if (itemId == null || category == null) {
+            return;
+        }
+        Facet facet = new Facet(shopId, CatalogVersions.categoryKey(category));
+        countedItems.put(itemId, facet);
+        labels.putIfAbsent(facet.key(), category.trim());
+        categoryCounts.merge(facet.key(), 1L, Long::sum);
+        shopCategoryCounts.computeIfAbsent(facet.shopId(), key -> new HashMap<>())
+                .merge(facet.key(), 1L, Long::sum);
+    }
+
+    private void uncount(Long itemId) {
+        Facet facet = itemId == null ? null : countedItems.remove(itemId);
+        if (facet == null) {
+            return;
+        }
+        decrement(categoryCounts, facet.key());
+        if (!categoryCounts.containsKey(facet.key())) {
+            labels.remove(facet.key());
+        }
+        Map<String, Long> shopCounts = shopCategoryCounts.get(facet.shopId());
+        if (shopCounts != null) {
+            decrement(shopCounts, facet.key());
+            if (shopCounts.isEmpty()) {
+                shopCategoryCounts.remove(facet.shopId());
+            }
+        }
+    }
+
+    private static void decrement(Map<String, Long> counts, String key) {
+        counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+}
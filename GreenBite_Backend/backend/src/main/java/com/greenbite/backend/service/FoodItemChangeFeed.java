@@ -0,0 +1,165 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.util.GeoHash;
+import com.greenbite.backend.util.SseRegistry;
+import com.greenbite.backend.util.SseSubscriber;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-sent events for food item changes, for clients that would otherwise poll the
+// listings. Subscribers follow one shop, one geohash tile or everything. Connections are
+// async servlet responses, so an idle subscriber holds no thread. A change is serialized
+// once, then offered to each matching SseSubscriber, whose bounded queue drops its oldest
+// event when full; a small sender pool does the writing.
+@Component
+public class FoodItemChangeFeed {
+
+    static final int MAX_TILE_PRECISION = 6;
+    static final int DEFAULT_TILE_PRECISION = 5;
+
+    private final ShopSummaryCache shopSummaryCache;
+    private final long timeoutMillis;
+    private final SseRegistry<Filter> registry;
+
+    // Lets changes skip the shop lookup while nobody follows a tile
+    private final AtomicInteger tileSubscribers = new AtomicInteger();
+
+    @Autowired
+    public FoodItemChangeFeed(
+            ShopSummaryCache shopSummaryCache,
+            ObjectMapper objectMapper,
+            @Value("${food-items.change-feed.queue-capacity:256}") int queueCapacity,
+            @Value("${food-items.change-feed.max-subscribers:20000}") int maxSubscribers,
+            @Value("${food-items.change-feed.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${food-items.change-feed.send-timeout-ms:10000}") long sendTimeoutMillis,
+            @Value("${food-items.change-feed.sender-threads:4}") int senderThreads) {
+        this(shopSummaryCache, objectMapper, queueCapacity, maxSubscribers, timeoutMillis, sendTimeoutMillis,
+                SseRegistry.senderPool(senderThreads, "change-feed-sender"));
+    }
+
+    FoodItemChangeFeed(ShopSummaryCache shopSummaryCache, ObjectMapper objectMapper, int queueCapacity,
+                       int maxSubscribers, long timeoutMillis, long sendTimeoutMillis, Executor executor) {
+        this.shopSummaryCache = shopSummaryCache;
+        this.timeoutMillis = timeoutMillis;
+        this.registry = new SseRegistry<>("change feed", objectMapper, queueCapacity, maxSubscribers,
+                sendTimeoutMillis, executor);
+    }
+
+    // The group a subscriber is filed under; both null for every change
+    private record Filter(Long shopId, String tile) {
+    }
+
+    private static final Filter EVERYTHING = new Filter(null, null);
+
+    // Exactly one of shopId and tile, or neither for every change
+    public SseEmitter subscribe(Long shopId, String tile) {
+        return subscribe(new SseEmitter(timeoutMillis), shopId, tile);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long shopId, String tile) {
+        if (shopId != null && tile != null) {
+            throw new IllegalArgumentException("Filter by shop or by tile, not both");
+        }
+        SseSubscriber subscriber;
+        if (tile != null) {
+            tile = tile.toLowerCase();
+            if (tile.isEmpty() || tile.length() > MAX_TILE_PRECISION) {
+                throw new IllegalArgumentException("Tile must be a geohash of 1 to " + MAX_TILE_PRECISION + " characters");
+            }
+            GeoHash.bounds(tile); // rejects characters outside the geohash alphabet
+            subscriber = registry.register(new Filter(null, tile), emitter, false, tileSubscribers::decrementAndGet);
+            tileSubscribers.incrementAndGet();
+        } else {
+            subscriber = registry.register(new Filter(shopId, null), emitter, false);
+        }
+        // Commits the response headers so the client sees the stream open
+        subscriber.heartbeat();
+        return emitter;
+    }
+
+    public static String tileOf(double lat, double lon) {
+        return GeoHash.encode(lat, lon, DEFAULT_TILE_PRECISION);
+    }
+
+    // Runs after the writing transaction commits, on the writer's thread; only queues
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodItemChanged(FoodItemChangedEvent event) {
+        if (registry.size() == 0) {
+            return;
+        }
+        Set<SseSubscriber> targets = new LinkedHashSet<>();
+        addGroup(EVERYTHING, targets);
+        collect(event.previous(), targets);
+        collect(event.current(), targets);
+        if (targets.isEmpty()) {
+            return;
+        }
+        registry.publish(targets, toFeedEvent(event));
+    }
+
+    @Scheduled(fixedDelayString = "${food-items.change-feed.heartbeat-ms:25000}")
+    public void heartbeat() {
+        registry.heartbeat();
+    }
+
+    public Map<String, Long> stats() {
+        return registry.stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        registry.shutdown();
+    }
+
+    private void collect(FoodItemSnapshot item, Set<SseSubscriber> targets) {
+        if (item == null || item.shopId() == null) {
+            return;
+        }
+        addGroup(new Filter(item.shopId(), null), targets);
+        if (tileSubscribers.get() == 0) {
+            return;
+        }
+        ShopSummaryCache.ShopSummary shop = shopSummaryCache.get(item.shopId());
+        if (shop == null || shop.latitude() == null || shop.longitude() == null) {
+            return;
+        }
+        // A tile subscription matches every item whose geohash starts with it
+        String geohash = GeoHash.encode(shop.latitude(), shop.longitude(), MAX_TILE_PRECISION);
+        for (int length = 1; length <= MAX_TILE_PRECISION; length++) {
+            addGroup(new Filter(null, geohash.substring(0, length)), targets);
+        }
+    }
+
+    private void addGroup(Filter filter, Set<SseSubscriber> targets) {
+        Set<SseSubscriber> group = registry.group(filter);
+        if (group != null) {
+            targets.addAll(group);
+        }
+    }
+
+    private SseSubscriber.Event toFeedEvent(FoodItemChangedEvent event) {
+        ChangeType type = event.type() == ChangeType.IMPORTED ? ChangeType.CREATED : event.type();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("type", type);
+        body.put("itemId", event.itemId());
+        body.put("shopId", event.shopId());
+        body.put("item", event.current());
+        return registry.event(type.name().toLowerCase(), body);
+    }
+}
@@ -0,0 +1,247 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.util.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Applies scheduled markdowns and expiries. Every item with a pending markdown or expiry
+// holds one timer in a TimingWheel, set for whichever comes first. FoodItemService keeps the
+// timers in step with its writes and the wheel is rebuilt from food_items at startup, so
+// nothing polls the table. Due items are re-read and updated in JDBC batches.
+@Component
+public class FoodItemExpiryScheduler {
+
+    static final int BATCH_SIZE = 500;
+    private static final long RETRY_DELAY_MS = 60_000;
+    private static final String SELECT_SQL = "SELECT id, name, description, price, quantity, tags, shop_id, category, " +
+            "expires_at, markdown_at, markdown_price FROM food_items WHERE id IN (:ids)";
+    private static final String UPDATE_SQL = "UPDATE food_items SET price = ?, quantity = ?, markdown_at = ? WHERE id = ?";
+
+    private final FoodItemRepository foodItemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HotStockService hotStockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long tickMillis;
+
+    private TimingWheel wheel; // guarded by this
+
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong markedDown = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dueBacklog = new AtomicLong();
+    private final AtomicLong lastTickLagMs = new AtomicLong();
+
+    public FoodItemExpiryScheduler(FoodItemRepository foodItemRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   HotStockService hotStockService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${food-items.expiry.tick-ms:1000}") long tickMillis) {
+        this.foodItemRepository = foodItemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hotStockService = hotStockService;
+        this.eventPublisher = eventPublisher;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimingWheel(tickMillis, System.currentTimeMillis());
+    }
+
+    // A row of food_items with the columns the scheduler acts on
+    private record Row(FoodItemSnapshot item, LocalDateTime expiresAt, LocalDateTime markdownAt, Double markdownPrice) {
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        TimingWheel rebuilt = new TimingWheel(tickMillis, System.currentTimeMillis());
+        for (Object[] row : foodItemRepository.findScheduleRows()) {
+            Long deadline = nextDeadline((Integer) row[1], (LocalDateTime) row[2], (LocalDateTime) row[3], (Double) row[4]);
+            if (deadline != null) {
+                rebuilt.schedule((Long) row[0], deadline);
+            }
+        }
+        synchronized (this) {
+            wheel = rebuilt;
+        }
+    }
+
+    // Called after a food item is saved; sets, moves or clears its timer
+    public void schedule(FoodItem foodItem) {
+        Long deadline = nextDeadline(foodItem.getQuantity(), foodItem.getExpiresAt(),
+                foodItem.getMarkdownAt(), foodItem.getMarkdownPrice());
+        synchronized (this) {
+            if (deadline != null) {
+                wheel.schedule(foodItem.getId(), deadline);
+            } else {
+                wheel.cancel(foodItem.getId());
+            }
+        }
+    }
+
+    public synchronized void cancel(Long itemId) {
+        wheel.cancel(itemId);
+    }
+
+    @Scheduled(fixedDelayString = "${food-items.expiry.tick-ms:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        List<Long> due = new ArrayList<>();
+        synchronized (this) {
+            lastTickLagMs.set(Math.max(0, now - wheel.currentMillis()));
+            wheel.advance(now, due::add);
+        }
+        dueBacklog.set(due.size());
+        for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+            List<Long> batch = due.subList(from, Math.min(from + BATCH_SIZE, due.size()));
+            try {
+                apply(batch);
+            } catch (RuntimeException e) {
+                // Counted in stats and retried after the delay
+                failures.incrementAndGet();
+                long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+                synchronized (this) {
+                    batch.forEach(itemId -> wheel.schedule(itemId, retryAt));
+                }
+            }
+            dueBacklog.addAndGet(-batch.size());
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        int[] levels;
+        synchronized (this) {
+            stats.put("pendingTimers", (long) wheel.size());
+            levels = wheel.levelSizes();
+        }
+        for (int level = 0; level < levels.length; level++) {
+            stats.put("timersLevel" + level, (long) levels[level]);
+        }
+        stats.put("dueBacklog", dueBacklog.get());
+        stats.put("lastTickLagMs", lastTickLagMs.get());
+        stats.put("expired", expired.get());
+        stats.put("markedDown", markedDown.get());
+        stats.put("batches", batches.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+
+    private void apply(List<Long> itemIds) {
+        // Hot stock lives in memory; write it back before the expiry zeroes the column
+        for (Row row : load(itemIds, false).values()) {
+            if (isExpiryDue(row, LocalDateTime.now()) && hotStockService.isHot(row.item().id())) {
+                hotStockService.coolDown(row.item().id());
+            }
+        }
+
+        Map<Long, Long> reschedule = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> updates = new ArrayList<>();
+            for (Row row : load(itemIds, true).values()) {
+                FoodItemSnapshot before = row.item();
+                boolean markdownDue = isMarkdownDue(row, now);
+                boolean expiryDue = isExpiryDue(row, now);
+                if (markdownDue || expiryDue) {
+                    FoodItemSnapshot after = new FoodItemSnapshot(before.id(), before.name(), before.description(),
+                            markdownDue ? row.markdownPrice() : before.price(),
+                            expiryDue ? Integer.valueOf(0) : before.quantity(),
+                            before.tags(), before.shopId(), before.category());
+                    updates.add(new Object[] {after.price(), after.quantity(),
+                            markdownDue ? null : toTimestamp(row.markdownAt()), before.id()});
+                    eventPublisher.publishEvent(new FoodItemChangedEvent(
+                            expiryDue ? ChangeType.STOCK_CHANGED : ChangeType.UPDATED, before, after));
+                    if (markdownDue) {
+                        markedDown.incrementAndGet();
+                    }
+                    if (expiryDue) {
+                        expired.incrementAndGet();
+                    }
+                }
+                // Whatever is still ahead, e.g. the expiry after a markdown
+                Long next = nextDeadline(expiryDue ? 0 : before.quantity(), row.expiresAt(),
+                        markdownDue ? null : row.markdownAt(), row.markdownPrice());
+                if (next != null) {
+                    reschedule.put(before.id(), next);
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            }
+        });
+        batches.incrementAndGet();
+
+        synchronized (this) {
+            reschedule.forEach(wheel::schedule);
+        }
+    }
+
+    private Map<Long, Row> load(List<Long> itemIds, boolean forUpdate) {
+        Map<Long, Row> rows = new LinkedHashMap<>();
+        namedJdbcTemplate.query(forUpdate ? SELECT_SQL + " ORDER BY id FOR UPDATE" : SELECT_SQL, Map.of("ids", itemIds), rs -> {
+            Timestamp expiresAt = rs.getTimestamp("expires_at");
+            Timestamp markdownAt = rs.getTimestamp("markdown_at");
+            FoodItemSnapshot item = HotStockService.snapshot(rs);
+            rows.put(item.id(), new Row(item,
+                    expiresAt != null ? expiresAt.toLocalDateTime() : null,
+                    markdownAt != null ? markdownAt.toLocalDateTime() : null,
+                    rs.getObject("markdown_price", Double.class)));
+        });
+        return rows;
+    }
+
+    private static boolean isMarkdownDue(Row row, LocalDateTime now) {
+        return row.markdownAt() != null && row.markdownPrice() != null && !row.markdownAt().isAfter(now);
+    }
+
+    private static boolean isExpiryDue(Row row, LocalDateTime now) {
+        return row.expiresAt() != null && !row.expiresAt().isAfter(now)
+                && row.item().quantity() != null && row.item().quantity() > 0;
+    }
+
+    // Epoch millis of the earliest pending action, or null when there is none
+    private static Long nextDeadline(Integer quantity, LocalDateTime expiresAt, LocalDateTime markdownAt, Double markdownPrice) {
+        Long deadline = null;
+        if (markdownAt != null && markdownPrice != null) {
+            deadline = toMillis(markdownAt);
+        }
+        if (expiresAt != null && quantity != null && quantity > 0) {
+            long expiry = toMillis(expiresAt);
+            deadline = deadline == null ? expiry : Math.min(deadline, expiry);
+        }
+        return deadline;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+}
@@ -0,0 +1,314 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.ImportReportDTO;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.repository.FoodShopRepository;
+import com.greenbite.backend.util.CsvLines;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Bulk listing for a shop from a CSV file or a JSON array. Input is validated one line
+// at a time and valid rows go to the database in JDBC batches, so memory use does not
+// grow with the file. Invalid lines are reported and skipped; the rest are imported.
+@Service
+public class FoodItemImportService {
+
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final String INSERT_SQL =
+            "INSERT INTO food_items (name, description, price, quantity, tags, shop_id, category) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FoodShopRepository foodShopRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public FoodItemImportService(JdbcTemplate jdbcTemplate,
+                                 FoodShopRepository foodShopRepository,
+                                 ObjectMapper objectMapper,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.foodShopRepository = foodShopRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Malformed input as a whole (bad CSV header, broken JSON) throws IllegalArgumentException
+    // and rolls back every batch already written
+    @Transactional
+    public ImportReportDTO importFoodItems(Long shopId, InputStream input, Format format) throws IOException {
+        if (!foodShopRepository.existsById(shopId)) {
+            throw new RuntimeException("Food shop not found");
+        }
+
+        ImportReportDTO report = new ImportReportDTO();
+        report.setShopId(shopId);
+        Batch batch = new Batch(shopId, report);
+        if (format == Format.JSON) {
+            readJson(input, batch);
+        } else {
+            readCsv(input, batch);
+        }
+        batch.flush();
+        return report;
+    }
+
+    private void readCsv(InputStream input, Batch batch) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = CsvLines.split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("name", "price", "quantity")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header must include name, price and quantity");
+            }
+        }
+
+        int lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields;
+            try {
+                fields = CsvLines.split(line);
+            } catch (IllegalArgumentException e) {
+                batch.reject(lineNumber, e.getMessage());
+                continue;
+            }
+            batch.offer(lineNumber,
+                    field(fields, columns, "name"),
+                    field(fields, columns, "description"),
+                    field(fields, columns, "price"),
+                    field(fields, columns, "quantity"),
+                    field(fields, columns, "category"),
+                    field(fields, columns, "tags"));
+        }
+    }
+
+    private void readJson(InputStream input, Batch batch) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("JSON import must be an array of food items");
+            }
+            int position = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("JSON array is not closed");
+                }
+                position++;
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    batch.reject(position, "Expected a JSON object");
+                    continue;
+                }
+                JsonNode item = parser.readValueAsTree();
+                batch.offer(position,
+                        text(item.get("name")),
+                        text(item.get("description")),
+                        text(item.get("price")),
+                        text(item.get("quantity")),
+                        text(item.get("category")),
+                        text(item.get("tags")));
+            }
+        } catch (JsonProcessingException e) {
+            String where = e.getLocation() != null ? " at line " + e.getLocation().getLineNr() : "";
+            throw new IllegalArgumentException("Malformed JSON" + where, e);
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String text(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (node.isArray()) {
+            List<String> values = new ArrayList<>();
+            node.forEach(value -> values.add(value.asText()));
+            return String.join(",", values);
+        }
+        return node.asText();
+    }
+
+    // Returns the row, or an error message for the report
+    static Object validate(String name, String description, String price, String quantity,
+                           String category, String tags) {
+        if (name == null || name.isBlank()) {
+            return "Name is required";
+        }
+        name = name.trim();
+        if (name.length() > MAX_TEXT_LENGTH) {
+            return "Name is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        description = description == null || description.isBlank() ? null : description.trim();
+        if (description != null && description.length() > MAX_TEXT_LENGTH) {
+            return "Description is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+
+        double parsedPrice;
+        try {
+            parsedPrice = Double.parseDouble(price == null ? "" : price.trim());
+        } catch (NumberFormatException e) {
+            return "Price must be a number";
+        }
+        if (!Double.isFinite(parsedPrice) || parsedPrice < 0) {
+            return "Price must not be negative";
+        }
+
+        int parsedQuantity;
+        try {
+            parsedQuantity = Integer.parseInt(quantity == null ? "" : quantity.trim());
+        } catch (NumberFormatException e) {
+            return "Quantity must be a whole number";
+        }
+        if (parsedQuantity < 0) {
+            return "Quantity must not be negative";
+        }
+
+        category = category == null || category.isBlank() ? null : category.trim();
+        if (category != null && category.length() > MAX_TEXT_LENGTH) {
+            return "Category is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        String normalizedTags = tags == null ? "" : Arrays.stream(tags.split(","))
+                .map(String::trim)
+                .filter(tag -> !tag.isEmpty())
+                .collect(Collectors.joining(","));
+        if (normalizedTags.length() > MAX_TEXT_LENGTH) {
+            return "Tags are longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        return new Row(name, description, parsedPrice, parsedQuantity, normalizedTags, category);
+    }
+
+    record Row(String name, String description, double price, int quantity, String tags, String category) {
+    }
+
+    private final class Batch {
+        private final Long shopId;
+        private final ImportReportDTO report;
+        private final List<Row> rows = new ArrayList<>(BATCH_SIZE);
+
+        Batch(Long shopId, ImportReportDTO report) {
+            this.shopId = shopId;
+            this.report = report;
+        }
+
+        void offer(int line, String name, String description, String price, String quantity,
+                   String category, String tags) {
+            Object result = validate(name, description, price, quantity, category, tags);
+            if (result instanceof Row row) {
+                rows.add(row);
+                if (rows.size() == BATCH_SIZE) {
+                    flush();
+                }
+            } else {
+                reject(line, (String) result);
+            }
+        }
+
+        void reject(int line, String message) {
+            report.setRejected(report.getRejected() + 1);
+            if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+                report.getErrors().add(new ImportReportDTO.LineError(line, message));
+            } else {
+                report.setErrorsTruncated(true);
+            }
+        }
+
+        // One multi-row round trip per batch; the database hands out the ids for the whole batch
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Row row = rows.get(i);
+                            ps.setString(1, row.name());
+                            ps.setString(2, row.description());
+                            ps.setDouble(3, row.price());
+                            ps.setInt(4, row.quantity());
+                            ps.setString(5, row.tags());
+                            ps.setLong(6, shopId);
+                            if (row.category() == null) {
+                                ps.setNull(7, Types.VARCHAR);
+                            } else {
+                                ps.setString(7, row.category());
+                            }
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return rows.size();
+                        }
+                    },
+                    keys);
+
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            if (keyList.size() != rows.size()) {
+                throw new IllegalStateException("Expected " + rows.size() + " generated ids, got " + keyList.size());
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                Row row = rows.get(i);
+                Long id = ((Number) keyList.get(i).values().iterator().next()).longValue();
+                FoodItemSnapshot snapshot = new FoodItemSnapshot(id, row.name(), row.description(), row.price(),
+                        row.quantity(), row.tags(), shopId, row.category());
+                eventPublisher.publishEvent(new FoodItemChangedEvent(ChangeType.IMPORTED, null, snapshot));
+            }
+            report.setImported(report.getImported() + rows.size());
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.util.TextSearchIndex;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+// Full-text index over item name, category and description, loaded at startup and
+// updated from FoodItemChangedEvent
+@Component
+public class FoodItemSearchIndex {
+
+    private final FoodItemRepository foodItemRepository;
+    private final TextSearchIndex index;
+
+    public FoodItemSearchIndex(
+            FoodItemRepository foodItemRepository,
+            @Value("${food-items.search.max-candidates:20000}") int maxCandidates) {
+        this.foodItemRepository = foodItemRepository;
+        this.index = new TextSearchIndex(maxCandidates);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        index.clear();
+        for (Object[] row : foodItemRepository.findAllSearchRows()) {
+            index.put((Long) row[0], (String) row[1], (String) row[3], (String) row[2]);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodItemChanged(FoodItemChangedEvent event) {
+        FoodItemSnapshot current = event.current();
+        if (current == null) {
+            index.remove(event.itemId());
+        } else {
+            index.put(current.id(), current.name(), current.category(), current.description());
+        }
+    }
+
+    public List<TextSearchIndex.Hit> search(String query, int limit) {
+        return index.search(query, limit, false);
+    }
+
+    public List<TextSearchIndex.Hit> autocomplete(String query, int limit) {
+        return index.search(query, limit, true);
+    }
+}
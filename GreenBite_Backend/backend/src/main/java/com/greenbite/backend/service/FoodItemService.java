@@ -1,20 +1,39 @@
 
 package com.greenbite.backend.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.FoodItemDTO;
-import com.greenbite.backend.dto.FoodShopDTO;
+import com.greenbite.backend.dto.SearchSuggestionDTO;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
 import com.greenbite.backend.model.FoodItem;
-import com.greenbite.backend.model.FoodShop;
 import com.greenbite.backend.model.UserFavorite;
 import com.greenbite.backend.repository.FoodItemRepository;
 import com.greenbite.backend.repository.UserFavoriteRepository;
+import com.greenbite.backend.util.GeoUtils;
+import com.greenbite.backend.util.JsonArrayStreams;
+import com.greenbite.backend.util.KeysetPages;
+import com.greenbite.backend.util.TextSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class FoodItemService {
@@ -24,35 +43,126 @@ public class FoodItemService {
     private final UserFavoriteRepository userFavoriteRepository;
     private final FileStorageService fileStorageService;
     private final FoodShopService foodShopService;
+    private final ShopSummaryCache shopSummaryCache;
+    private final NearbyItemCache nearbyItemCache;
+    private final FoodItemTagIndex foodItemTagIndex;
+    private final FoodItemSearchIndex foodItemSearchIndex;
+    private final CategoryFacetCounter categoryFacetCounter;
+    private final HotStockService hotStockService;
+    private final FoodItemExpiryScheduler expiryScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     public FoodItemService(
             FoodItemRepository foodItemRepository,
             UserFavoriteRepository userFavoriteRepository,
-            FileStorageService fileStorageService,FoodShopService foodShopService) {
+            FileStorageService fileStorageService,FoodShopService foodShopService,
+            ShopSummaryCache shopSummaryCache,
+            NearbyItemCache nearbyItemCache,
+            FoodItemTagIndex foodItemTagIndex,
+            FoodItemSearchIndex foodItemSearchIndex,
+            CategoryFacetCounter categoryFacetCounter,
+            HotStockService hotStockService,
+            FoodItemExpiryScheduler expiryScheduler,
+            ApplicationEventPublisher eventPublisher) {
         this.foodItemRepository = foodItemRepository;
         this.userFavoriteRepository = userFavoriteRepository;
         this.fileStorageService = fileStorageService;
         this.foodShopService=foodShopService;
+        this.shopSummaryCache = shopSummaryCache;
+        this.nearbyItemCache = nearbyItemCache;
+        this.foodItemTagIndex = foodItemTagIndex;
+        this.foodItemSearchIndex = foodItemSearchIndex;
+        this.categoryFacetCounter = categoryFacetCounter;
+        this.hotStockService = hotStockService;
+        this.expiryScheduler = expiryScheduler;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<FoodItemDTO> getAllFoodItems() {
-        return foodItemRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(foodItemRepository.findAll());
+    }
+
+    public CursorPage<FoodItemDTO> getFoodItemsPage(String cursor, int size) {
+        int pageSize = KeysetPages.pageSize(size);
+        List<FoodItem> rows = foodItemRepository.findByIdGreaterThanOrderByIdAsc(
+                KeysetPages.afterId(cursor), Limit.of(pageSize + 1));
+        return KeysetPages.page(rows, pageSize, FoodItem::getId, this::convertToDTOs);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportFoodItems(JsonGenerator generator) throws IOException {
+        try (Stream<FoodItem> rows = foodItemRepository.streamAll()) {
+            JsonArrayStreams.write(generator, rows, EXPORT_CHUNK_SIZE, this::convertToDTOs, entityManager::clear);
+        }
     }
 
     public List<FoodItemDTO> getFoodItemsByShop(Long shopId) {
-        return foodItemRepository.findByShopId(shopId).stream()
-                .map(this::convertToDTO)
+        return convertToDTOs(foodItemRepository.findByShopId(shopId));
+    }
+
+    // Tag/category/shop filter evaluated on the bitmap index, paged by item id
+    public CursorPage<FoodItemDTO> getFoodItemsByTags(FoodItemTagIndex.Filter filter, String cursor, int size) {
+        int pageSize = KeysetPages.pageSize(size);
+        List<Long> itemIds = foodItemTagIndex.filter(filter, KeysetPages.afterId(cursor), pageSize + 1);
+        if (itemIds.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+        List<FoodItem> rows = new ArrayList<>(foodItemRepository.findAllById(itemIds));
+        rows.sort(Comparator.comparing(FoodItem::getId));
+        return KeysetPages.page(rows, pageSize, FoodItem::getId, this::convertToDTOs);
+    }
+
+    public Map<String, Long> getTagCounts() {
+        return foodItemTagIndex.tagCounts();
+    }
+
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    // Ranked by the in-memory index; only the top hits are loaded from the database
+    public List<FoodItemDTO> searchFoodItems(String query, int limit) {
+        List<TextSearchIndex.Hit> hits = foodItemSearchIndex.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, FoodItem> itemsById = foodItemRepository.findAllById(
+                        hits.stream().map(TextSearchIndex.Hit::id).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(FoodItem::getId, Function.identity()));
+        List<FoodItem> ranked = hits.stream()
+                .map(hit -> itemsById.get(hit.id()))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        return convertToDTOs(ranked);
     }
 
-    public List<FoodItemDTO> getFoodItemsByCategory(String category) {
-        return foodItemRepository.findByCategory(category).stream()
-                .map(this::convertToDTO)
+    // Served entirely from memory, for search-as-you-type
+    public List<SearchSuggestionDTO> autocompleteFoodItems(String query, int limit) {
+        return foodItemSearchIndex.autocomplete(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS))).stream()
+                .map(hit -> new SearchSuggestionDTO(hit.id(), hit.title(), hit.score()))
                 .collect(Collectors.toList());
     }
 
+    // In-stock item count per category, optionally only for shops within the radius
+    public Map<String, Long> getCategoryFacets(Double lat, Double lon, Double radius) {
+        if (lat == null || lon == null || radius == null) {
+            return categoryFacetCounter.categoryCounts();
+        }
+        return categoryFacetCounter.categoryCounts(foodShopService.findShopIdsNearby(lat, lon, radius));
+    }
+
+    public Map<String, Long> getScheduleStats() {
+        return expiryScheduler.stats();
+    }
+
+    public List<FoodItemDTO> getFoodItemsByCategory(String category) {
+        return convertToDTOs(foodItemRepository.findByCategory(category));
+    }
+
     public FoodItemDTO addFoodItem(FoodItemDTO foodItemDTO, MultipartFile foodImage) throws IOException {
         // Convert DTO to Entity
         FoodItem foodItem = convertToEntity(foodItemDTO);
@@ -65,29 +175,50 @@ public class FoodItemService {
 
         // Save food item to database
         foodItem = foodItemRepository.save(foodItem);
+        expiryScheduler.schedule(foodItem);
+        eventPublisher.publishEvent(new FoodItemChangedEvent(ChangeType.CREATED, null, FoodItemSnapshot.of(foodItem)));
         return convertToDTO(foodItem);
     }
 
     private FoodItemDTO convertToDTO(FoodItem foodItem) {
+        // Fetch food shop name
+        ShopSummaryCache.ShopSummary shop = shopSummaryCache.get(foodItem.getShopId());
+        return convertToDTO(foodItem, shop != null ? shop.name() : null);
+    }
+
+    // Shop names for the whole list are resolved in one cache lookup
+    private List<FoodItemDTO> convertToDTOs(List<FoodItem> foodItems) {
+        Map<Long, ShopSummaryCache.ShopSummary> shops = shopSummaryCache.getAll(
+                foodItems.stream().map(FoodItem::getShopId).collect(Collectors.toSet()));
+        return foodItems.stream()
+                .map(foodItem -> {
+                    ShopSummaryCache.ShopSummary shop = shops.get(foodItem.getShopId());
+                    return convertToDTO(foodItem, shop != null ? shop.name() : null);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private FoodItemDTO convertToDTO(FoodItem foodItem, String shopName) {
         // Handle null tags
         List<String> tagList = foodItem.getTags() == null
                 ? List.of() // Return an empty list if tags is null
                 : Arrays.asList(foodItem.getTags().split(",")); // Otherwise, split the tags string
 
-        // Fetch food shop name
-        FoodShopDTO shop = foodShopService.getFoodShopById(foodItem.getShopId());
-
         return new FoodItemDTO(
                 foodItem.getId(),
                 foodItem.getName(),
-                shop != null ? shop.getName() : null,
+                shopName,
                 foodItem.getDescription(),
                 foodItem.getPrice(),
                 foodItem.getQuantity(),
                 foodItem.getShopId(),
                 foodItem.getPhoto(),
                 tagList, // Pass the list of tags (empty if tags is null)
-                foodItem.getCategory()
+                foodItem.getCategory(),
+                foodItem.getExpiresAt(),
+                foodItem.getMarkdownAt(),
+                foodItem.getMarkdownPrice(),
+                null
         );
     }
 
@@ -112,20 +243,59 @@ public class FoodItemService {
                 foodItemDTO.getPhoto(),
                 tags, // Store tags as a comma-separated string
                 foodItemDTO.getShopId(),
-                foodItemDTO.getCategory()
+                foodItemDTO.getCategory(),
+                foodItemDTO.getExpiresAt(),
+                foodItemDTO.getMarkdownAt(),
+                foodItemDTO.getMarkdownPrice()
         );
     }
 
     public List<FoodItemDTO> getFoodItemsNearby(double lat, double lon, double radius) {
-        List<FoodShop> nearbyShops = foodShopService.findShopsNearby(lat, lon, radius);
+        NearbyItemCache.Tile tile = nearbyItemCache.tileFor(lat, lon, radius);
+        if (tile == null) {
+            return findInStockItemsAround(lat, lon, radius).stream()
+                    .map(row -> convertToDTO((FoodItem) row[0], (String) row[1]))
+                    .collect(Collectors.toList());
+        }
 
-        List<FoodItem> foodItems = nearbyShops.stream()
-                .flatMap(shop -> foodItemRepository.findByShopId(shop.getId()).stream())
-                .collect(Collectors.toList());
+        List<Long> cachedItemIds = nearbyItemCache.lookup(tile, lat, lon, radius);
+        if (cachedItemIds != null) {
+            if (cachedItemIds.isEmpty()) {
+                return List.of();
+            }
+            return foodItemRepository.findInStockWithShopNameByIdIn(cachedItemIds).stream()
+                    .map(row -> convertToDTO((FoodItem) row[0], (String) row[1]))
+                    .collect(Collectors.toList());
+        }
 
-        return foodItems.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        // Miss: load the whole tile once, then answer this request from the same rows
+        List<Object[]> tileRows = findInStockItemsAround(tile.centerLatitude(), tile.centerLongitude(), tile.coverageKm());
+        List<NearbyItemCache.ItemLocation> tileItems = new ArrayList<>(tileRows.size());
+        List<FoodItemDTO> nearbyItems = new ArrayList<>();
+        for (Object[] row : tileRows) {
+            FoodItem foodItem = (FoodItem) row[0];
+            double shopLat = (Double) row[2];
+            double shopLon = (Double) row[3];
+            tileItems.add(new NearbyItemCache.ItemLocation(foodItem.getId(), shopLat, shopLon));
+            if (GeoUtils.distanceKm(lat, lon, shopLat, shopLon) <= radius) {
+                nearbyItems.add(convertToDTO(foodItem, (String) row[1]));
+            }
+        }
+        nearbyItemCache.store(tile, tileItems);
+        return nearbyItems;
+    }
+
+    // One query for every in-stock item of every shop in the circle, shop name and location included
+    private List<Object[]> findInStockItemsAround(double lat, double lon, double radius) {
+        List<Long> nearbyShopIds = foodShopService.findShopIdsNearby(lat, lon, radius);
+        if (nearbyShopIds.isEmpty()) {
+            return List.of();
+        }
+        return foodItemRepository.findInStockWithShopByShopIdIn(nearbyShopIds);
+    }
+
+    public Map<String, Long> getNearbyCacheStats() {
+        return nearbyItemCache.stats();
     }
 
 
@@ -140,10 +310,18 @@ public class FoodItemService {
 
         // Delete the food item
         foodItemRepository.delete(foodItem);
+        expiryScheduler.cancel(id);
+        eventPublisher.publishEvent(new FoodItemChangedEvent(ChangeType.DELETED, FoodItemSnapshot.of(foodItem), null));
     }
     public FoodItemDTO updateFoodItem(FoodItemDTO foodItemDTO) {
         FoodItem existingFoodItem = foodItemRepository.findById(foodItemDTO.getId())
                 .orElseThrow(() -> new RuntimeException("Food item not found"));
+        // A hot item's stock lives in memory; writing the column would be overwritten by the flusher
+        if (hotStockService.isHot(existingFoodItem.getId())
+                && !Objects.equals(existingFoodItem.getQuantity(), foodItemDTO.getQuantity())) {
+            throw new IllegalStateException("Turn off hot mode before changing the quantity of food item " + existingFoodItem.getId());
+        }
+        FoodItemSnapshot previous = FoodItemSnapshot.of(existingFoodItem);
 
         // Update fields from DTO
         existingFoodItem.setName(foodItemDTO.getName());
@@ -151,6 +329,21 @@ public class FoodItemService {
         existingFoodItem.setPrice(foodItemDTO.getPrice());
         existingFoodItem.setQuantity(foodItemDTO.getQuantity());
         existingFoodItem.setCategory(foodItemDTO.getCategory());
+        // Clients that predate scheduling do not send these; a missing field keeps its value
+        if (Boolean.TRUE.equals(foodItemDTO.getClearSchedule())) {
+            existingFoodItem.setExpiresAt(null);
+            existingFoodItem.setMarkdownAt(null);
+            existingFoodItem.setMarkdownPrice(null);
+        }
+        if (foodItemDTO.getExpiresAt() != null) {
+            existingFoodItem.setExpiresAt(foodItemDTO.getExpiresAt());
+        }
+        if (foodItemDTO.getMarkdownAt() != null) {
+            existingFoodItem.setMarkdownAt(foodItemDTO.getMarkdownAt());
+        }
+        if (foodItemDTO.getMarkdownPrice() != null) {
+            existingFoodItem.setMarkdownPrice(foodItemDTO.getMarkdownPrice());
+        }
 
         // Convert tags list to a comma-separated string
         String tags = String.join(",", foodItemDTO.getTags());
@@ -158,6 +351,8 @@ public class FoodItemService {
 
         // Save updated entity
         existingFoodItem = foodItemRepository.save(existingFoodItem);
+        expiryScheduler.schedule(existingFoodItem);
+        eventPublisher.publishEvent(new FoodItemChangedEvent(ChangeType.UPDATED, previous, FoodItemSnapshot.of(existingFoodItem)));
         return convertToDTO(existingFoodItem);
     }
 
@@ -0,0 +1,238 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.repository.FoodItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Tag dictionary (tag -> int id) plus inverted indexes from tag, category and shop to
+// compressed bitmaps of item ids. Filters are evaluated as bitmap AND/OR operations.
+@Component
+public class FoodItemTagIndex {
+
+    public record Filter(Collection<String> allTags, Collection<String> anyTags, String category, Long shopId) {
+    }
+
+    private record IndexedItem(int[] tagIds, String category, Long shopId) {
+    }
+
+    private final FoodItemRepository foodItemRepository;
+
+    private final Map<String, Integer> tagIds = new HashMap<>();
+    private final List<String> tagNames = new ArrayList<>();
+    private final List<Roaring64Bitmap> itemsByTag = new ArrayList<>();
+    private final Map<String, Roaring64Bitmap> itemsByCategory = new HashMap<>();
+    private final Map<Long, Roaring64Bitmap> itemsByShop = new HashMap<>();
+    private final Map<Long, IndexedItem> items = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FoodItemTagIndex(FoodItemRepository foodItemRepository) {
+        this.foodItemRepository = foodItemRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<Object[]> rows = foodItemRepository.findAllTagRows();
+        lock.writeLock().lock();
+        try {
+            tagIds.clear();
+            tagNames.clear();
+            itemsByTag.clear();
+            itemsByCategory.clear();
+            itemsByShop.clear();
+            items.clear();
+            for (Object[] row : rows) {
+                add((Long) row[0], (String) row[1], (String) row[2], (Long) row[3]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodItemChanged(FoodItemChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.itemId());
+            FoodItemSnapshot current = event.current();
+            if (current != null) {
+                add(current.id(), current.tags(), current.category(), current.shopId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Matching item ids greater than afterId, ascending, at most limit of them
+    public List<Long> filter(Filter filter, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap matches = evaluate(filter);
+            List<Long> itemIds = new ArrayList<>(Math.min(limit, 64));
+            if (matches == null) {
+                return itemIds;
+            }
+            PeekableLongIterator iterator = matches.getLongIteratorFrom(afterId + 1);
+            while (iterator.hasNext() && itemIds.size() < limit) {
+                itemIds.add(iterator.next());
+            }
+            return itemIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Tags in the dictionary with the number of items carrying each
+    public Map<String, Long> tagCounts() {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new HashMap<>();
+            for (int tagId = 0; tagId < tagNames.size(); tagId++) {
+                long count = itemsByTag.get(tagId).getLongCardinality();
+                if (count > 0) {
+                    counts.put(tagNames.get(tagId), count);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Null means nothing can match
+    private Roaring64Bitmap evaluate(Filter filter) {
+        List<Roaring64Bitmap> required = new ArrayList<>();
+        for (String tag : normalizeAll(filter.allTags())) {
+            Integer tagId = tagIds.get(tag);
+            if (tagId == null) {
+                return null;
+            }
+            required.add(itemsByTag.get(tagId));
+        }
+
+        Set<String> anyTags = normalizeAll(filter.anyTags());
+        if (!anyTags.isEmpty()) {
+            Roaring64Bitmap union = new Roaring64Bitmap();
+            for (String tag : anyTags) {
+                Integer tagId = tagIds.get(tag);
+                if (tagId != null) {
+                    union.or(itemsByTag.get(tagId));
+                }
+            }
+            required.add(union);
+        }
+
+        if (filter.category() != null && !filter.category().isBlank()) {
+            Roaring64Bitmap categoryItems = itemsByCategory.get(normalize(filter.category()));
+            if (categoryItems == null) {
+                return null;
+            }
+            required.add(categoryItems);
+        }
+        if (filter.shopId() != null) {
+            Roaring64Bitmap shopItems = itemsByShop.get(filter.shopId());
+            if (shopItems == null) {
+                return null;
+            }
+            required.add(shopItems);
+        }
+        if (required.isEmpty()) {
+            throw new IllegalArgumentException("At least one tag, category or shop filter is required");
+        }
+
+        // Intersect smallest first so the working set shrinks as fast as possible
+        required.sort(Comparator.comparingLong(Roaring64Bitmap::getLongCardinality));
+        Roaring64Bitmap result = required.get(0).clone();
+        for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+            result.and(required.get(i));
+        }
+        return result;
+    }
+
+    private void add(Long itemId, String tags, String category, Long shopId) {
+        if (itemId == null) {
+            return;
+        }
+        Set<String> normalizedTags = tags == null ? Set.of() : normalizeAll(Arrays.asList(tags.split(",")));
+        int[] ids = new int[normalizedTags.size()];
+        int i = 0;
+        for (String tag : normalizedTags) {
+            int tagId = tagIds.computeIfAbsent(tag, key -> {
+                tagNames.add(key);
+                itemsByTag.add(new Roaring64Bitmap());
+                return tagNames.size() - 1;
+            });
+            itemsByTag.get(tagId).addLong(itemId);
+            ids[i++] = tagId;
+        }
+
+        String normalizedCategory = category == null || category.isBlank() ? null : normalize(category);
+        if (normalizedCategory != null) {
+            itemsByCategory.computeIfAbsent(normalizedCategory, key -> new Roaring64Bitmap()).addLong(itemId);
+        }
+        if (shopId != null) {
+            itemsByShop.computeIfAbsent(shopId, key -> new Roaring64Bitmap()).addLong(itemId);
+        }
+        items.put(itemId, new IndexedItem(ids, normalizedCategory, shopId));
+    }
+
+    private void remove(Long itemId) {
+        IndexedItem item = itemId == null ? null : items.remove(itemId);
+        if (item == null) {
+            return;
+        }
+        // Tag ids stay in the dictionary even when their bitmap empties
+        for (int tagId : item.tagIds()) {
+            itemsByTag.get(tagId).removeLong(itemId);
+        }
+        if (item.category() != null) {
+            removeFrom(itemsByCategory, item.category(), itemId);
+        }
+        if (item.shopId() != null) {
+            removeFrom(itemsByShop, item.shopId(), itemId);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, Roaring64Bitmap> index, K key, long itemId) {
+        Roaring64Bitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.removeLong(itemId);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> normalizeAll(Collection<String> values) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank()) {
+                    normalized.add(normalize(value));
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,18 +2,35 @@ package com.greenbite.backend.service;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.FoodShopDTO;
+import com.greenbite.backend.dto.NearbyShopDTO;
 import com.greenbite.backend.dto.UserDTO;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodShopChangedEvent;
 import com.greenbite.backend.model.FoodShop;
 import com.greenbite.backend.model.User;
 import com.greenbite.backend.repository.FoodShopRepository;
+import com.greenbite.backend.util.CursorCodec;
+import com.greenbite.backend.util.GeoGridIndex;
+import com.greenbite.backend.util.GeoUtils;
+import com.greenbite.backend.util.KeysetPages;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,9 +41,48 @@ public class FoodShopService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ShopSpatialIndex shopSpatialIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_NEAREST_SHOPS = 100;
+
+    // Closest first, ties broken by id so the cursor order is total
+    private static final Comparator<ShopDistance> NEAREST_FIRST =
+            Comparator.comparingDouble(ShopDistance::distanceKm).thenComparingLong(ShopDistance::shopId);
+
+    @Value("${shop.spatial-index.enabled:true}")
+    private boolean spatialIndexEnabled;
+
+    @PostConstruct
+    public void buildSpatialIndex() {
+        if (spatialIndexEnabled) {
+            shopSpatialIndex.rebuild(foodShopRepository.findAll());
+        }
+    }
 
     public FoodShop saveFoodShop(FoodShop foodShop) {
-        return foodShopRepository.save(foodShop);
+        // Saving with an existing id overwrites that shop, possibly moving it
+        FoodShop existingShop = foodShop.getId() == null ? null
+                : foodShopRepository.findById(foodShop.getId()).orElse(null);
+        Double previousLatitude = existingShop != null ? existingShop.getLatitude() : null;
+        Double previousLongitude = existingShop != null ? existingShop.getLongitude() : null;
+
+        FoodShop savedShop = foodShopRepository.save(foodShop);
+        if (spatialIndexEnabled) {
+            shopSpatialIndex.put(savedShop);
+        }
+        eventPublisher.publishEvent(new FoodShopChangedEvent(
+                existingShop == null ? ChangeType.CREATED : ChangeType.UPDATED,
+                savedShop.getId(),
+                previousLatitude,
+                previousLongitude,
+                savedShop.getLatitude(),
+                savedShop.getLongitude()
+        ));
+        return savedShop;
     }
 
     public List<FoodShopDTO> getAllFoodShops() {
@@ -39,18 +95,30 @@ public class FoodShopService {
     public List<FoodShopDTO> getAllFoodShopsAdmin() {
         List<FoodShop> foodShops = foodShopRepository.findAll();
         return foodShops.stream()
-                .map(shop -> new FoodShopDTO(
-                        shop.getId(),
-                        shop.getName(),
-                        shop.getPhoto(),
-                        shop.getAddress(),
-                        shop.getPhoneNumber(),
-                        shop.getLatitude(),
-                        shop.getLongitude()
-                ))
+                .map(this::convertToAdminDTO)
                 .collect(Collectors.toList());
     }
 
+    public CursorPage<FoodShopDTO> getFoodShopsAdminPage(String cursor, int size) {
+        int pageSize = KeysetPages.pageSize(size);
+        List<FoodShop> rows = foodShopRepository.findByIdGreaterThanOrderByIdAsc(
+                KeysetPages.afterId(cursor), Limit.of(pageSize + 1));
+        return KeysetPages.page(rows, pageSize, FoodShop::getId,
+                shops -> shops.stream().map(this::convertToAdminDTO).collect(Collectors.toList()));
+    }
+
+    private FoodShopDTO convertToAdminDTO(FoodShop shop) {
+        return new FoodShopDTO(
+                shop.getId(),
+                shop.getName(),
+                shop.getPhoto(),
+                shop.getAddress(),
+                shop.getPhoneNumber(),
+                shop.getLatitude(),
+                shop.getLongitude()
+        );
+    }
+
     public FoodShopDTO getFoodShopById(Long id) {
         FoodShop foodShop = foodShopRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Shop not found"));
@@ -71,8 +139,20 @@ public class FoodShopService {
     }
 
     public void deleteFoodShopById(Long foodShopId) {
-        if (foodShopRepository.existsById(foodShopId)) {
+        FoodShop existingShop = foodShopRepository.findById(foodShopId).orElse(null);
+        if (existingShop != null) {
             foodShopRepository.deleteById(foodShopId);
+            if (spatialIndexEnabled) {
+                shopSpatialIndex.remove(foodShopId);
+            }
+            eventPublisher.publishEvent(new FoodShopChangedEvent(
+                    ChangeType.DELETED,
+                    foodShopId,
+                    existingShop.getLatitude(),
+                    existingShop.getLongitude(),
+                    null,
+                    null
+            ));
         } else {
             throw new RuntimeException("food shop not found with ID: " + foodShopId);
         }
@@ -111,33 +191,144 @@ public class FoodShopService {
                         existingShop.setPhoto(fileUrl); // Save the GCS URL in the database
                     }
 
-                    return foodShopRepository.save(existingShop);
+                    FoodShop savedShop = foodShopRepository.save(existingShop);
+                    if (spatialIndexEnabled) {
+                        shopSpatialIndex.put(savedShop);
+                    }
+                    eventPublisher.publishEvent(new FoodShopChangedEvent(
+                            ChangeType.UPDATED,
+                            savedShop.getId(),
+                            savedShop.getLatitude(),
+                            savedShop.getLongitude(),
+                            savedShop.getLatitude(),
+                            savedShop.getLongitude()
+                    ));
+                    return savedShop;
                 })
                 .orElseThrow(() -> new RuntimeException("Shop not found"));
     }
 
-    // Earth's radius in kilometers
-    private static final double EARTH_RADIUS = 6371;
-
     public List<FoodShop> findShopsNearby(double lat, double lon, double radius) {
-        List<FoodShop> allShops = foodShopRepository.findAll();
+        if (!spatialIndexEnabled) {
+            return findShopsNearbyInDatabase(lat, lon, radius);
+        }
 
-        return allShops.stream()
-                .filter(shop -> calculateDistance(lat, lon, shop.getLatitude(), shop.getLongitude()) <= radius)
+        // Only shops in grid cells overlapping the search circle are distance-checked
+        List<Long> nearbyShopIds = shopSpatialIndex.findShopIdsWithinRadius(lat, lon, radius);
+        if (nearbyShopIds.isEmpty()) {
+            return List.of();
+        }
+        return foodShopRepository.findAllById(nearbyShopIds);
+    }
+
+    // Ids only, so callers that join on shop id never hydrate FoodShop entities
+    public List<Long> findShopIdsNearby(double lat, double lon, double radius) {
+        List<Long> shopIds = new ArrayList<>();
+        forEachShopWithinRadius(lat, lon, radius, (shopId, distance) -> shopIds.add(shopId));
+        return shopIds;
+    }
+
+    // Bounding-box pre-filter in SQL, exact haversine only on the candidate rows
+    private List<FoodShop> findShopsNearbyInDatabase(double lat, double lon, double radius) {
+        return findCandidatesInDatabase(lat, lon, radius).stream()
+                .filter(shop -> GeoUtils.distanceKm(lat, lon, shop.getLatitude(), shop.getLongitude()) <= radius)
                 .collect(Collectors.toList());
     }
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+    private List<FoodShop> findCandidatesInDatabase(double lat, double lon, double radius) {
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(lat, lon, radius);
+        if (!box.crossesAntimeridian()) {
+            return foodShopRepository.findWithinBoundingBox(box.minLat(), box.maxLat(), box.minLon(), box.maxLon());
+        }
+
+        // Split the box into the parts on either side of +/-180
+        double minLon = box.minLon() < -180 ? box.minLon() + 360 : box.minLon();
+        double maxLon = box.maxLon() > 180 ? box.maxLon() - 360 : box.maxLon();
+        List<FoodShop> candidates = new ArrayList<>(
+                foodShopRepository.findWithinBoundingBox(box.minLat(), box.maxLat(), minLon, 180));
+        candidates.addAll(foodShopRepository.findWithinBoundingBox(box.minLat(), box.maxLat(), -180, maxLon));
+        return candidates;
+    }
+
+    private void forEachShopWithinRadius(double lat, double lon, double radius, GeoGridIndex.HitConsumer consumer) {
+        if (spatialIndexEnabled) {
+            shopSpatialIndex.forEachWithinRadius(lat, lon, radius, consumer);
+            return;
+        }
+        for (FoodShop shop : findCandidatesInDatabase(lat, lon, radius)) {
+            double distance = GeoUtils.distanceKm(lat, lon, shop.getLatitude(), shop.getLongitude());
+            if (distance <= radius) {
+                consumer.accept(shop.getId(), distance);
+            }
+        }
+    }
+
+    // The k closest shops within the radius, sorted by distance. The cursor is the
+    // (distance, id) of the last shop on the previous page.
+    public CursorPage<NearbyShopDTO> findNearestShops(double lat, double lon, double radius, int k, String cursor) {
+        int limit = Math.max(1, Math.min(k, MAX_NEAREST_SHOPS));
+        ShopDistance after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = CursorCodec.decode(cursor, 2);
+            try {
+                after = new ShopDistance(Long.parseLong(parts[1]), Double.parseDouble(parts[0]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        // Bounded max-heap: the farthest of the current k best sits on top
+        PriorityQueue<ShopDistance> closest = new PriorityQueue<>(limit + 1, NEAREST_FIRST.reversed());
+        ShopDistance cursorPosition = after;
+        int[] matched = {0};
+        forEachShopWithinRadius(lat, lon, radius, (shopId, distance) -> {
+            ShopDistance candidate = new ShopDistance(shopId, distance);
+            if (cursorPosition != null && NEAREST_FIRST.compare(candidate, cursorPosition) <= 0) {
+                return;
+            }
+            matched[0]++;
+            if (closest.size() < limit) {
+                closest.add(candidate);
+            } else if (NEAREST_FIRST.compare(candidate, closest.peek()) < 0) {
+                closest.poll();
+                closest.add(candidate);
+            }
+        });
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        List<ShopDistance> page = new ArrayList<>(closest);
+        page.sort(NEAREST_FIRST);
+
+        Map<Long, FoodShop> shopsById = foodShopRepository.findAllById(
+                        page.stream().map(ShopDistance::shopId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(FoodShop::getId, Function.identity()));
+
+        List<NearbyShopDTO> shops = new ArrayList<>(page.size());
+        for (ShopDistance entry : page) {
+            FoodShop shop = shopsById.get(entry.shopId());
+            if (shop != null) {
+                shops.add(new NearbyShopDTO(
+                        shop.getId(),
+                        shop.getName(),
+                        shop.getPhoto(),
+                        shop.getAddress(),
+                        shop.getPhoneNumber(),
+                        shop.getLatitude(),
+                        shop.getLongitude(),
+                        entry.distanceKm()
+                ));
+            }
+        }
+
+        String nextCursor = null;
+        if (matched[0] > limit) {
+            ShopDistance last = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(last.distanceKm(), last.shopId());
+        }
+        return new CursorPage<>(shops, nextCursor);
+    }
 
-        return EARTH_RADIUS * c;
+    private record ShopDistance(long shopId, double distanceKm) {
     }
 
     public List<FoodShopDTO> getExpiredLicenseShops() {
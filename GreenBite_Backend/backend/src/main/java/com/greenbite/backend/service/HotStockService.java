@@ -0,0 +1,365 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.util.StripedStockCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hot-item mode for flash surplus drops. A hot item's available quantity lives in a
+// StripedStockCounter, so orders for it are decided in memory instead of queueing on the
+// food_items row. Committed orders are written back in batches: the flusher subtracts
+// the net quantities from food_items and marks the orders stock_settled in one
+// transaction. On startup, orders still unsettled are replayed to rebuild the counters.
+// Assumes a single application instance owns the hot items.
+@Component
+public class HotStockService {
+
+    private static final long COOL_DOWN_TIMEOUT_MS = 5000;
+    private static final String ITEM_SQL =
+            "SELECT id, name, description, price, quantity, tags, shop_id, category FROM food_items WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersions catalogVersions;
+
+    private final Map<Long, HotItem> items = new ConcurrentHashMap<>();
+    private final Queue<Settlement> committed = new ConcurrentLinkedQueue<>();
+    // Settlements queued or being flushed; only drops once food_items holds them
+    private final AtomicInteger unsettled = new AtomicInteger();
+    private final AtomicLong recoveredOrders = new AtomicLong();
+    private final AtomicLong unreadableOrders = new AtomicLong();
+    private final AtomicLong settledOrders = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    public HotStockService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper, CatalogVersions catalogVersions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.catalogVersions = catalogVersions;
+    }
+
+    // An order whose hot lines are committed but not yet subtracted from food_items
+    record Settlement(Long orderId, Map<Long, Integer> quantities) {
+    }
+
+    // One hot item. inFlight counts reservations taken but not yet committed or rolled
+    // back; cooling down waits on the item's monitor for it to reach zero before the DB
+    // becomes authoritative, and whoever brings it to zero while closed wakes it.
+    public static final class HotItem {
+        private final StripedStockCounter counter;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final CountDownLatch removed = new CountDownLatch(1);
+        private volatile boolean closed;
+        private volatile FoodItemSnapshot base;
+
+        HotItem(FoodItemSnapshot base, int available) {
+            this.base = base;
+            this.counter = new StripedStockCounter(available);
+        }
+
+        public int available() {
+            return counter.available();
+        }
+
+        private void leave() {
+            if (inFlight.decrementAndGet() == 0 && closed) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        // Quantity in the snapshot is replaced with the live counter value
+        public FoodItemSnapshot snapshot(int quantity) {
+            FoodItemSnapshot item = base;
+            return new FoodItemSnapshot(item.id(), item.name(), item.description(), item.price(),
+                    quantity, item.tags(), item.shopId(), item.category());
+        }
+    }
+
+    @PostConstruct
+    public void recover() {
+        Map<Long, Integer> pending = new TreeMap<>();
+        jdbcTemplate.query("SELECT id, ordered_items_json FROM orders WHERE stock_settled = false", rs -> {
+            Map<Long, Integer> quantities;
+            try {
+                quantities = hotLines(rs.getString("ordered_items_json"));
+            } catch (IOException | RuntimeException e) {
+                // Left unsettled; one bad row must not keep the application from starting
+                unreadableOrders.incrementAndGet();
+                return;
+            }
+            unsettled.incrementAndGet();
+            committed.add(new Settlement(rs.getLong("id"), quantities));
+            quantities.forEach((itemId, quantity) -> pending.merge(itemId, quantity, Integer::sum));
+        });
+
+        // food_items still holds the stock from before these orders
+        pending.forEach((itemId, quantity) -> {
+            List<FoodItemSnapshot> rows = jdbcTemplate.query(ITEM_SQL, (rs, rowNum) -> snapshot(rs), itemId);
+            if (!rows.isEmpty()) {
+                FoodItemSnapshot row = rows.get(0);
+                int stored = row.quantity() == null ? 0 : row.quantity();
+                items.put(itemId, new HotItem(row, Math.max(0, stored - quantity)));
+            }
+        });
+        recoveredOrders.addAndGet(committed.size());
+    }
+
+    // The row lock keeps committing SQL reservations out until the counter is installed
+    public int markHot(Long itemId) {
+        return transactionTemplate.execute(status -> {
+            HotItem existing = items.get(itemId);
+            if (existing != null && !existing.closed) {
+                return existing.available();
+            }
+            List<FoodItemSnapshot> rows = jdbcTemplate.query(ITEM_SQL + " FOR UPDATE", (rs, rowNum) -> snapshot(rs), itemId);
+            if (rows.isEmpty()) {
+                throw new RuntimeException("Food item not found");
+            }
+            FoodItemSnapshot row = rows.get(0);
+            HotItem item = new HotItem(row, Math.max(0, row.quantity() == null ? 0 : row.quantity()));
+            if (items.putIfAbsent(itemId, item) != null) {
+                throw new IllegalStateException("Food item is cooling down");
+            }
+            return item.available();
+        });
+    }
+
+    // Stops taking reservations in memory, waits for the in-flight ones, and writes the
+    // committed quantities back so food_items is exact before orders go back to SQL
+    public void coolDown(Long itemId) {
+        HotItem item = items.get(itemId);
+        if (item == null) {
+            return;
+        }
+        item.closed = true;
+        long deadline = System.currentTimeMillis() + COOL_DOWN_TIMEOUT_MS;
+        synchronized (item) {
+            while (item.inFlight.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    item.closed = false;
+                    throw new IllegalStateException("Timed out waiting for in-flight orders on food item " + itemId);
+                }
+                try {
+                    item.wait(remaining);
+                } catch (InterruptedException e) {
+                    item.closed = false;
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for in-flight orders on food item " + itemId, e);
+                }
+            }
+        }
+        if (!flushCommitted()) {
+            item.closed = false;
+            throw new IllegalStateException("Could not write back hot stock for food item " + itemId);
+        }
+        items.remove(itemId, item);
+        item.removed.countDown();
+    }
+
+    public boolean isHot(Long itemId) {
+        return items.containsKey(itemId);
+    }
+
+    // True while some hot quantity is taken in memory but not yet subtracted from food_items
+    public boolean hasUnsettledStock() {
+        if (unsettled.get() > 0) {
+            return true;
+        }
+        for (HotItem item : items.values()) {
+            if (item.inFlight.get() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<Long, Integer> availableByItem() {
+        Map<Long, Integer> available = new TreeMap<>();
+        items.forEach((itemId, item) -> available.put(itemId, item.available()));
+        return available;
+    }
+
+    // The open hot item, or null when orders for it should go to the database. Waits out
+    // a cool-down so an order never reads food_items before the last flush.
+    HotItem acquire(Long itemId) {
+        HotItem item = items.get(itemId);
+        if (item == null) {
+            return null;
+        }
+        item.inFlight.incrementAndGet();
+        if (!item.closed) {
+            return item;
+        }
+        item.leave();
+        try {
+            if (!item.removed.await(COOL_DOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Food item " + itemId + " is cooling down");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for food item " + itemId, e);
+        }
+        return null;
+    }
+
+    boolean tryTake(HotItem item, int quantity) {
+        return item.counter.tryTake(quantity);
+    }
+
+    // Called once the reserving transaction has finished
+    void complete(HotItem item, int quantity, boolean committed) {
+        if (!committed) {
+            item.counter.release(quantity);
+        }
+        item.leave();
+    }
+
+    HotItem hotItem(Long itemId) {
+        return items.get(itemId);
+    }
+
+    void settleLater(Long orderId, Map<Long, Integer> quantities) {
+        unsettled.incrementAndGet();
+        committed.add(new Settlement(orderId, quantities));
+    }
+
+    @Scheduled(fixedDelayString = "${food-items.hot-stock.flush-interval-ms:1000}")
+    public void flush() {
+        flushCommitted();
+    }
+
+    private synchronized boolean flushCommitted() {
+        if (committed.isEmpty()) {
+            return true;
+        }
+        List<Settlement> drained = new ArrayList<>();
+        Settlement settlement;
+        while ((settlement = committed.poll()) != null) {
+            drained.add(settlement);
+        }
+
+        Map<Long, Integer> net = new TreeMap<>();
+        List<Long> orderIds = new ArrayList<>(drained.size());
+        for (Settlement s : drained) {
+            if (s.orderId() != null) {
+                orderIds.add(s.orderId());
+            }
+            s.quantities().forEach((itemId, quantity) -> net.merge(itemId, quantity, Integer::sum));
+        }
+        List<Object[]> batch = new ArrayList<>(net.size());
+        net.forEach((itemId, quantity) -> batch.add(new Object[] {quantity, itemId}));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate("UPDATE food_items SET quantity = quantity - ? WHERE id = ?", batch);
+                for (int from = 0; from < orderIds.size(); from += 1000) {
+                    namedJdbcTemplate.update("UPDATE orders SET stock_settled = true WHERE id IN (:ids)",
+                            Map.of("ids", orderIds.subList(from, Math.min(from + 1000, orderIds.size()))));
+                }
+            });
+            unsettled.addAndGet(-drained.size());
+            settledOrders.addAndGet(drained.size());
+            // Listings read the quantity column, which only changes now
+            net.keySet().forEach(itemId -> {
+                HotItem item = items.get(itemId);
+                if (item != null) {
+                    catalogVersions.itemChanged(item.base.shopId(), item.base.category());
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            // Retry on the next flush; recovery replays them if the process dies first
+            committed.addAll(drained);
+            failedFlushes.incrementAndGet();
+            return false;
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hotItems", (long) items.size());
+        stats.put("unsettledOrders", (long) unsettled.get());
+        stats.put("recoveredOrders", recoveredOrders.get());
+        stats.put("unreadableOrders", unreadableOrders.get());
+        stats.put("settledOrders", settledOrders.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Keeps names and prices in published snapshots current; deleted items stop being hot
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodItemChanged(FoodItemChangedEvent event) {
+        HotItem item = items.get(event.itemId());
+        if (item == null) {
+            return;
+        }
+        if (event.type() == ChangeType.DELETED) {
+            items.remove(event.itemId(), item);
+            item.removed.countDown();
+        } else if (event.type() == ChangeType.UPDATED) {
+            item.base = event.current();
+        }
+    }
+
+    private Map<Long, Integer> hotLines(String orderedItemsJson) throws IOException {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (JsonNode line : objectMapper.readTree(orderedItemsJson)) {
+            if (line.path("hot").asBoolean(false)) {
+                quantities.merge(line.get("id").asLong(), line.get("quantity").asInt(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    static FoodItemSnapshot snapshot(ResultSet rs) throws SQLException {
+        return new FoodItemSnapshot(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getObject("price", Double.class),
+                rs.getObject("quantity", Integer.class),
+                rs.getString("tags"),
+                rs.getObject("shop_id", Long.class),
+                rs.getString("category"));
+    }
+}
@@ -0,0 +1,18 @@
+package com.greenbite.backend.service;
+
+import java.util.List;
+
+// An order line asked for more than the item has left; the whole order is rolled back
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<Long> itemIds;
+
+    public InsufficientStockException(List<Long> itemIds) {
+        super("Insufficient stock for food items " + itemIds);
+        this.itemIds = List.copyOf(itemIds);
+    }
+
+    public List<Long> getItemIds() {
+        return itemIds;
+    }
+}
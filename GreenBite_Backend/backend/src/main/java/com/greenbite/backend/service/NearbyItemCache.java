@@ -0,0 +1,283 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodShopChangedEvent;
+import com.greenbite.backend.util.GeoHash;
+import com.greenbite.backend.util.GeoUtils;
+import com.greenbite.backend.util.TtlLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Caches the in-stock item ids around a geohash tile for a radius bucket. A tile entry
+// covers every request point inside the tile, so hits are filtered back down to the
+// exact request circle and return the same items as an uncached search. Entries are also
+// filed under a coarser geohash cell per bucket, so a write only visits the cells around
+// the changed point instead of scanning the whole cache.
+@Component
+public class NearbyItemCache {
+
+    private static final double[] RADIUS_BUCKETS_KM = {1, 2, 3, 5, 10, 15, 20, 30, 50};
+
+    private final TtlLruCache<TileKey, TileEntry> cache;
+    private final int geohashPrecision;
+    private final ShopSpatialIndex shopSpatialIndex;
+    private final ShopSummaryCache shopSummaryCache;
+    // Geohash precision of the cells each bucket's entries are filed under
+    private final Map<Double, Integer> cellPrecisions = new LinkedHashMap<>();
+    private final Map<CellKey, Set<TileKey>> keysByCell = new ConcurrentHashMap<>();
+    // Tiles are widest at the equator
+    private final double maxHalfDiagonalKm;
+
+    // Bumped on every invalidation so a search that started before it cannot store stale ids
+    private long generation;
+    private long invalidatedEntries;
+
+    public NearbyItemCache(
+            ShopSpatialIndex shopSpatialIndex,
+            ShopSummaryCache shopSummaryCache,
+            @Value("${food-items.nearby-cache.max-entries:10000}") int maxEntries,
+            @Value("${food-items.nearby-cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${food-items.nearby-cache.geohash-precision:6}") int geohashPrecision) {
+        this.shopSpatialIndex = shopSpatialIndex;
+        this.shopSummaryCache = shopSummaryCache;
+        this.cache = new TtlLruCache<>(maxEntries, ttlSeconds * 1000, (key, entry) -> unfile(key));
+        this.geohashPrecision = geohashPrecision;
+        // The finest cell that is still at least as tall as the bucket's coverage, so a
+        // write usually touches a 2 x 2 block of cells per bucket
+        this.maxHalfDiagonalKm = halfDiagonalKm(GeoHash.encode(0, 0, geohashPrecision));
+        for (double bucket : RADIUS_BUCKETS_KM) {
+            int precision = geohashPrecision;
+            while (precision > 1 && cellHeightKm(precision) < bucket + maxHalfDiagonalKm) {
+                precision--;
+            }
+            cellPrecisions.put(bucket, precision);
+        }
+    }
+
+    public record ItemLocation(long itemId, double latitude, double longitude) {
+    }
+
+    private record TileKey(String geohash, double radiusBucketKm) {
+    }
+
+    private record TileEntry(List<ItemLocation> items) {
+    }
+
+    private record CellKey(double radiusBucketKm, String cell) {
+    }
+
+    // Where a tile's result set has to be computed from, and how far it has to reach
+    public record Tile(String geohash, double radiusBucketKm, double centerLatitude, double centerLongitude,
+                       double coverageKm, long generation) {
+
+        private TileKey key() {
+            return new TileKey(geohash, radiusBucketKm);
+        }
+    }
+
+    // Returns null when the radius is larger than the biggest cached bucket
+    public synchronized Tile tileFor(double lat, double lon, double radiusKm) {
+        double bucket = -1;
+        for (double candidate : RADIUS_BUCKETS_KM) {
+            if (radiusKm <= candidate) {
+                bucket = candidate;
+                break;
+            }
+        }
+        if (bucket < 0) {
+            return null;
+        }
+
+        String geohash = GeoHash.encode(lat, lon, geohashPrecision);
+        double[] center = center(geohash);
+        return new Tile(geohash, bucket, center[0], center[1], bucket + halfDiagonalKm(geohash), generation);
+    }
+
+    // Cached item ids within radiusKm of the request point, or null on a miss
+    public List<Long> lookup(Tile tile, double lat, double lon, double radiusKm) {
+        TileEntry entry = cache.get(tile.key());
+        if (entry == null) {
+            return null;
+        }
+        List<Long> itemIds = new ArrayList<>();
+        for (ItemLocation item : entry.items()) {
+            if (GeoUtils.distanceKm(lat, lon, item.latitude(), item.longitude()) <= radiusKm) {
+                itemIds.add(item.itemId());
+            }
+        }
+        return itemIds;
+    }
+
+    // Filed under its cell in the same locked step, so an invalidation that bumps the
+    // generation afterwards is sure to find it
+    public synchronized void store(Tile tile, List<ItemLocation> items) {
+        if (tile.generation() == generation) {
+            TileKey key = tile.key();
+            cache.put(key, new TileEntry(List.copyOf(items)));
+            keysByCell.compute(cellOf(key), (k, keys) -> {
+                Set<TileKey> target = keys != null ? keys : ConcurrentHashMap.<TileKey>newKeySet();
+                target.add(key);
+                return target;
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodItemChanged(FoodItemChangedEvent event) {
+        // Entries hold in-stock item ids only, so plain price or quantity edits keep them valid
+        boolean membershipChanged = switch (event.type()) {
+            case CREATED, IMPORTED -> event.isInStock();
+            case DELETED -> event.wasInStock();
+            case UPDATED, STOCK_CHANGED -> event.wasInStock() != event.isInStock()
+                    || !Objects.equals(event.previous().shopId(), event.current().shopId());
+        };
+        if (!membershipChanged) {
+            return;
+        }
+
+        if (event.previous() != null) {
+            invalidateAroundShop(event.previous().shopId());
+        }
+        if (event.current() != null && (event.previous() == null
+                || !Objects.equals(event.previous().shopId(), event.current().shopId()))) {
+            invalidateAroundShop(event.current().shopId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodShopChanged(FoodShopChangedEvent event) {
+        if (event.previousLatitude() != null && (event.moved() || event.latitude() == null)) {
+            invalidateAround(event.previousLatitude(), event.previousLongitude());
+        }
+        // Also when the shop is given coordinates for the first time
+        if (event.latitude() != null && (event.moved() || event.previousLatitude() == null)) {
+            invalidateAround(event.latitude(), event.longitude());
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", cache.hits());
+        stats.put("misses", cache.misses());
+        stats.put("size", (long) cache.size());
+        synchronized (this) {
+            stats.put("invalidatedEntries", invalidatedEntries);
+        }
+        return stats;
+    }
+
+    private void invalidateAroundShop(Long shopId) {
+        double[] position = shopPosition(shopId);
+        // A shop without coordinates has no items in any tile
+        if (position != null) {
+            invalidateAround(position[0], position[1]);
+        }
+    }
+
+    // From the spatial index when it is enabled, otherwise from the shop row
+    private double[] shopPosition(Long shopId) {
+        if (shopId == null) {
+            return null;
+        }
+        double[] position = shopSpatialIndex.position(shopId);
+        if (position != null) {
+            return position;
+        }
+        ShopSummaryCache.ShopSummary shop = shopSummaryCache.get(shopId);
+        if (shop == null || shop.latitude() == null || shop.longitude() == null) {
+            return null;
+        }
+        return new double[] {shop.latitude(), shop.longitude()};
+    }
+
+    // Drops every tile whose coverage circle contains the point. Only the cells within
+    // each bucket's coverage of the point can hold such tiles.
+    private void invalidateAround(double lat, double lon) {
+        synchronized (this) {
+            generation++;
+        }
+        long removed = 0;
+        for (double bucket : RADIUS_BUCKETS_KM) {
+            int precision = cellPrecisions.get(bucket);
+            for (String cell : cellsAround(lat, lon, bucket + maxHalfDiagonalKm, precision)) {
+                Set<TileKey> keys = keysByCell.get(new CellKey(bucket, cell));
+                if (keys == null) {
+                    continue;
+                }
+                for (TileKey key : keys) {
+                    double[] center = center(key.geohash());
+                    double coverage = key.radiusBucketKm() + halfDiagonalKm(key.geohash());
+                    if (GeoUtils.distanceKm(center[0], center[1], lat, lon) <= coverage) {
+                        if (cache.remove(key) != null) {
+                            removed++;
+                        }
+                        unfile(key);
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            invalidatedEntries += removed;
+        }
+    }
+
+    private CellKey cellOf(TileKey key) {
+        return new CellKey(key.radiusBucketKm(), key.geohash().substring(0, cellPrecisions.get(key.radiusBucketKm())));
+    }
+
+    private void unfile(TileKey key) {
+        keysByCell.computeIfPresent(cellOf(key), (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    // Geohash cells of the given precision that overlap the box around the circle
+    private static Set<String> cellsAround(double lat, double lon, double radiusKm, int precision) {
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(lat, lon, radiusKm);
+        double[] cell = GeoHash.bounds(GeoHash.encode(lat, lon, precision));
+        double height = cell[1] - cell[0];
+        double width = cell[3] - cell[2];
+        int rows = (int) Math.ceil((box.maxLat() - box.minLat()) / height) + 1;
+        int columns = Math.min((int) Math.ceil((box.maxLon() - box.minLon()) / width) + 1, (int) Math.round(360 / width));
+        Set<String> cells = new HashSet<>();
+        for (int row = 0; row < rows; row++) {
+            double cellLat = Math.min(box.minLat() + row * height, box.maxLat());
+            for (int column = 0; column < columns; column++) {
+                double cellLon = Math.min(box.minLon() + column * width, box.maxLon());
+                // Wrap longitudes of circles that cross the antimeridian
+                cellLon = ((cellLon + 180) % 360 + 360) % 360 - 180;
+                cells.add(GeoHash.encode(Math.min(cellLat, 89.999999), cellLon, precision));
+            }
+        }
+        return cells;
+    }
+
+    private static double[] center(String geohash) {
+        double[] bounds = GeoHash.bounds(geohash);
+        return new double[] {(bounds[0] + bounds[1]) / 2, (bounds[2] + bounds[3]) / 2};
+    }
+
+    private static double halfDiagonalKm(String geohash) {
+        double[] bounds = GeoHash.bounds(geohash);
+        double[] center = center(geohash);
+        return Math.max(
+                GeoUtils.distanceKm(center[0], center[1], bounds[0], bounds[3]),
+                GeoUtils.distanceKm(center[0], center[1], bounds[1], bounds[3]));
+    }
+
+    private static double cellHeightKm(int precision) {
+        double[] bounds = GeoHash.bounds(GeoHash.encode(0, 0, precision));
+        return GeoUtils.distanceKm(bounds[0], 0, bounds[1], 0);
+    }
+}
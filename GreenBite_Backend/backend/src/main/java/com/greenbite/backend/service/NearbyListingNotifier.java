@@ -0,0 +1,156 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.notification.NearbyListingNotification;
+import com.greenbite.backend.notification.NotificationSink;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Alerts users near a shop when it lists a new in-stock item. Recipients come from
+// UserLocationIndex and are sent to the sink in batches on a dedicated executor, so the
+// request that created the listing never waits on the fan-out. The shop's position comes
+// from ShopSpatialIndex when it is enabled, otherwise from ShopSummaryCache.
+@Component
+public class NearbyListingNotifier {
+
+    private final UserLocationIndex userLocationIndex;
+    private final ShopSpatialIndex shopSpatialIndex;
+    private final ShopSummaryCache shopSummaryCache;
+    private final NotificationSink notificationSink;
+    private final Executor executor;
+    private final double radiusKm;
+    private final int batchSize;
+
+    private final AtomicLong notificationsSent = new AtomicLong();
+    private final AtomicLong droppedListings = new AtomicLong();
+    private final AtomicLong unlocatedListings = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    @Autowired
+    public NearbyListingNotifier(
+            UserLocationIndex userLocationIndex,
+            ShopSpatialIndex shopSpatialIndex,
+            ShopSummaryCache shopSummaryCache,
+            NotificationSink notificationSink,
+            @Value("${food-items.listing-notifications.radius-km:5}") double radiusKm,
+            @Value("${food-items.listing-notifications.batch-size:500}") int batchSize,
+            @Value("${food-items.listing-notifications.queue-capacity:1000}") int queueCapacity) {
+        this(userLocationIndex, shopSpatialIndex, shopSummaryCache, notificationSink, radiusKm, batchSize,
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "listing-notifier");
+                            thread.setDaemon(true);
+                            return thread;
+                        }));
+    }
+
+    NearbyListingNotifier(UserLocationIndex userLocationIndex, ShopSpatialIndex shopSpatialIndex,
+                          ShopSummaryCache shopSummaryCache, NotificationSink notificationSink,
+                          double radiusKm, int batchSize, Executor executor) {
+        this.userLocationIndex = userLocationIndex;
+        this.shopSpatialIndex = shopSpatialIndex;
+        this.shopSummaryCache = shopSummaryCache;
+        this.notificationSink = notificationSink;
+        this.radiusKm = radiusKm;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFoodItemChanged(FoodItemChangedEvent event) {
+        if (event.type() != ChangeType.CREATED || !event.isInStock()) {
+            return;
+        }
+        FoodItemSnapshot item = event.current();
+        try {
+            executor.execute(() -> notifyNearbyUsers(item));
+        } catch (RejectedExecutionException e) {
+            // Queue full: shed the alert rather than back-pressure the listing request
+            droppedListings.incrementAndGet();
+        }
+    }
+
+    void notifyNearbyUsers(FoodItemSnapshot item) {
+        double[] shopPosition = shopPosition(item.shopId());
+        if (shopPosition == null) {
+            unlocatedListings.incrementAndGet();
+            return;
+        }
+
+        List<NearbyListingNotification> batch = new ArrayList<>(batchSize);
+        userLocationIndex.forEachWithinRadius(shopPosition[0], shopPosition[1], radiusKm, (userId, distanceKm) -> {
+            batch.add(new NearbyListingNotification(userId, item.id(), item.shopId(), item.name(), distanceKm));
+            if (batch.size() == batchSize) {
+                deliver(batch);
+            }
+        });
+        deliver(batch);
+    }
+
+    private double[] shopPosition(Long shopId) {
+        if (shopId == null) {
+            return null;
+        }
+        double[] position = shopSpatialIndex.position(shopId);
+        if (position != null) {
+            return position;
+        }
+        ShopSummaryCache.ShopSummary shop = shopSummaryCache.get(shopId);
+        if (shop == null || shop.latitude() == null || shop.longitude() == null) {
+            return null;
+        }
+        return new double[] {shop.latitude(), shop.longitude()};
+    }
+
+    private void deliver(List<NearbyListingNotification> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            notificationSink.send(batch);
+            notificationsSent.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+        }
+        batch.clear();
+    }
+
+    public long notificationsSent() {
+        return notificationsSent.get();
+    }
+
+    public long droppedListings() {
+        return droppedListings.get();
+    }
+
+    // Listings skipped because their shop has no coordinates
+    public long unlocatedListings() {
+        return unlocatedListings.get();
+    }
+
+    public long failedBatches() {
+        return failedBatches.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+}
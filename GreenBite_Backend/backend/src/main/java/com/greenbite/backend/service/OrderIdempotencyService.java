@@ -0,0 +1,138 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.dto.OrderDTO;
+import com.greenbite.backend.model.Order;
+import com.greenbite.backend.repository.OrderRepository;
+import com.greenbite.backend.util.TtlLruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Order submission keyed by the client's Idempotency-Key, so a retried request does not
+// create a second order or take stock twice. Keys are scoped to the customer, so two
+// clients that happen to pick the same key never see each other's orders. Finished orders
+// stay in a bounded TTL cache; older keys are still found through the unique
+// (customer_id, idempotency_key) index. A duplicate that arrives while the first request
+// runs waits for its result instead of running again.
+@Service
+public class OrderIdempotencyService {
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TtlLruCache<String, Order> completed;
+    private final long waitMillis;
+
+    private final Map<String, CompletableFuture<Order>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OrderIdempotencyService(
+            OrderService orderService,
+            OrderRepository orderRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${orders.idempotency.max-entries:100000}") int maxEntries,
+            @Value("${orders.idempotency.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${orders.idempotency.wait-ms:30000}") long waitMillis) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.completed = new TtlLruCache<>(maxEntries, ttlSeconds * 1000);
+        this.waitMillis = waitMillis;
+    }
+
+    // replayed is true when the order was created by an earlier request with the same key
+    public record Result(Order order, boolean replayed) {
+    }
+
+    public Result createOrder(String key, OrderDTO orderDTO) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Long customerId = orderDTO.getCustomerId();
+        if (customerId == null) {
+            throw new IllegalArgumentException("An order sent with an Idempotency-Key needs a customer id");
+        }
+        String scopedKey = customerId + ":" + key;
+        Order cached = completed.get(scopedKey);
+        if (cached != null) {
+            return replay(cached, orderDTO);
+        }
+
+        CompletableFuture<Order> mine = new CompletableFuture<>();
+        CompletableFuture<Order> running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return replay(await(running), orderDTO);
+        }
+        try {
+            // The first request may have finished since the cache miss, or the key may be
+            // older than the cache or have come in through another instance
+            Order existing = completed.get(scopedKey);
+            if (existing == null) {
+                existing = orderRepository.findByCustomerIdAndIdempotencyKey(customerId, key).orElse(null);
+            }
+            if (existing != null) {
+                completed.put(scopedKey, existing);
+                mine.complete(existing);
+                return replay(existing, orderDTO);
+            }
+
+            Order order;
+            try {
+                // Committed before anyone waiting on this key is released
+                order = transactionTemplate.execute(status -> orderService.createOrder(orderDTO, key));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance inserted the same key first; its order stands
+                order = orderRepository.findByCustomerIdAndIdempotencyKey(customerId, key).orElseThrow(() -> e);
+                completed.put(scopedKey, order);
+                mine.complete(order);
+                return replay(order, orderDTO);
+            }
+            completed.put(scopedKey, order);
+            mine.complete(order);
+            return new Result(order, false);
+        } catch (RuntimeException e) {
+            // Waiting duplicates get the same failure; later retries run again
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    private Order await(CompletableFuture<Order> running) {
+        try {
+            return running.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a request with this Idempotency-Key");
+        }
+    }
+
+    // The customer always matches; a key reused for another shop is a client bug
+    private static Result replay(Order order, OrderDTO orderDTO) {
+        if (!Objects.equals(order.getShopId(), orderDTO.getShopId())) {
+            throw new IllegalStateException("Idempotency-Key was already used for a different order");
+        }
+        return new Result(order, true);
+    }
+}
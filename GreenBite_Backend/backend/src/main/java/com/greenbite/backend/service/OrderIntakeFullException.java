@@ -0,0 +1,9 @@
+package com.greenbite.backend.service;
+
+// The asynchronous order queue is full, or not accepting orders; the client should retry later
+public class OrderIntakeFullException extends RuntimeException {
+
+    public OrderIntakeFullException(String message) {
+        super(message);
+    }
+}
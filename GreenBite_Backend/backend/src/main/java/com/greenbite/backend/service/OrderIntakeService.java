@@ -0,0 +1,328 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.dto.OrderDTO;
+import com.greenbite.backend.dto.PendingOrderDTO;
+import com.greenbite.backend.model.Order;
+import com.greenbite.backend.util.TtlLruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Asynchronous order intake. A submitted order is checked, put on a bounded queue and
+// acknowledged with a pending id; the request thread never touches the database. Worker
+// threads take up to batchSize orders at a time and place them in one transaction, so one
+// commit covers the whole group. The group's stock rows are locked together in id order
+// first, so two workers (or a worker and /confirm) cannot deadlock on each other's rows.
+// When an order in the group fails, the group is rolled back and its orders are placed
+// one by one. A full queue is reported to the caller
+// instead of growing, and shutdown stops intake and drains what is queued.
+@Service
+public class OrderIntakeService {
+
+    public static final String PENDING = "PENDING";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String REJECTED = "REJECTED";
+
+    private static final long POLL_MILLIS = 100;
+
+    private final OrderService orderService;
+    private final StockReservationService stockReservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Ticket> queue;
+    private final Map<String, Ticket> pending = new ConcurrentHashMap<>();
+    private final TtlLruCache<String, PendingOrderDTO> finished;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int workers;
+    private final long drainTimeoutMillis;
+
+    private volatile boolean accepting;
+    private ExecutorService workerPool;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejectedFull = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    // Rejections caused by unexpected errors rather than stock or input
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong groupCommits = new AtomicLong();
+    private final AtomicLong groupedOrders = new AtomicLong();
+    // Orders rejected out of a group whose other orders were placed as groups again
+    private final AtomicLong groupRejections = new AtomicLong();
+    private final AtomicLong groupFallbacks = new AtomicLong();
+
+    @Autowired
+    public OrderIntakeService(
+            OrderService orderService,
+            StockReservationService stockReservationService,
+            PlatformTransactionManager transactionManager,
+            @Value("${orders.async-intake.enabled:false}") boolean enabled,
+            @Value("${orders.async-intake.queue-capacity:2000}") int queueCapacity,
+            @Value("${orders.async-intake.batch-size:32}") int batchSize,
+            @Value("${orders.async-intake.workers:2}") int workers,
+            @Value("${orders.async-intake.drain-timeout-ms:20000}") long drainTimeoutMillis,
+            @Value("${orders.async-intake.result-ttl-seconds:600}") long resultTtlSeconds) {
+        this.orderService = orderService;
+        this.stockReservationService = stockReservationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.finished = new TtlLruCache<>(Math.max(queueCapacity * 10, 10_000), resultTtlSeconds * 1000);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+
+    private static final class Ticket {
+        private final String id = UUID.randomUUID().toString();
+        private final OrderDTO order;
+        private final CompletableFuture<PendingOrderDTO> done = new CompletableFuture<>();
+
+        private Ticket(OrderDTO order) {
+            this.order = order;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "order-intake");
+            thread.setDaemon(true);
+            return thread;
+        });
+        accepting = true;
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PendingOrderDTO submit(OrderDTO orderDTO) {
+        if (!accepting) {
+            throw new OrderIntakeFullException("Order intake is not accepting orders");
+        }
+        validate(orderDTO);
+        if (orderDTO.getOrderDate() == null) {
+            // Placed later, but ordered now
+            orderDTO.setOrderDate(LocalDateTime.now());
+        }
+        Ticket ticket = new Ticket(orderDTO);
+        pending.put(ticket.id, ticket);
+        // Shutdown may have stopped the workers since the check above; take the order back
+        if (!queue.offer(ticket) || (!accepting && queue.remove(ticket))) {
+            pending.remove(ticket.id);
+            rejectedFull.incrementAndGet();
+            throw new OrderIntakeFullException("Order queue is full");
+        }
+        accepted.incrementAndGet();
+        return new PendingOrderDTO(ticket.id, PENDING, null, null, null);
+    }
+
+    // Null when the id is unknown or its result has expired
+    public PendingOrderDTO status(String pendingId) {
+        if (pending.containsKey(pendingId)) {
+            return new PendingOrderDTO(pendingId, PENDING, null, null, null);
+        }
+        return finished.get(pendingId);
+    }
+
+    // Completes with the final status; null when the id is unknown
+    public CompletableFuture<PendingOrderDTO> whenDone(String pendingId) {
+        Ticket ticket = pending.get(pendingId);
+        if (ticket != null) {
+            return ticket.done;
+        }
+        PendingOrderDTO result = finished.get(pendingId);
+        return result != null ? CompletableFuture.completedFuture(result) : null;
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("queued", (long) queue.size());
+        stats.put("accepted", accepted.get());
+        stats.put("rejectedFull", rejectedFull.get());
+        stats.put("confirmed", confirmed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("failed", failed.get());
+        stats.put("groupCommits", groupCommits.get());
+        stats.put("groupedOrders", groupedOrders.get());
+        stats.put("groupRejections", groupRejections.get());
+        stats.put("groupFallbacks", groupFallbacks.get());
+        return stats;
+    }
+
+    // Stops intake, then lets the workers finish what is queued
+    @PreDestroy
+    public void shutdown() {
+        if (workerPool == null) {
+            return;
+        }
+        accepting = false;
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(drainTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        Ticket left;
+        while ((left = queue.poll()) != null) {
+            finish(left, new PendingOrderDTO(left.id, REJECTED, null, "Server shut down before the order was placed", null));
+        }
+    }
+
+    private void work() {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Ticket first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                if (!accepting) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            place(batch);
+            batch.clear();
+        }
+    }
+
+    // A stock or input failure rejects just that order: the orders ahead of it went through,
+    // so they are committed again as one group, then the rest carry on as another. Anything
+    // else places the group's orders one at a time.
+    private void place(List<Ticket> batch) {
+        Deque<List<Ticket>> groups = new ArrayDeque<>();
+        groups.push(batch);
+        List<Ticket> group;
+        while ((group = groups.poll()) != null) {
+            List<Ticket> tickets = group;
+            int[] reached = new int[1];
+            try {
+                List<Order> orders = transactionTemplate.execute(status -> placeAll(tickets, reached));
+                groupCommits.incrementAndGet();
+                groupedOrders.addAndGet(tickets.size());
+                for (int i = 0; i < tickets.size(); i++) {
+                    confirm(tickets.get(i), orders.get(i));
+                }
+            } catch (RuntimeException e) {
+                if (tickets.size() == 1) {
+                    reject(tickets.get(0), e);
+                } else if (e instanceof InsufficientStockException || e instanceof IllegalArgumentException) {
+                    groupRejections.incrementAndGet();
+                    int at = reached[0];
+                    reject(tickets.get(at), e);
+                    if (at + 1 < tickets.size()) {
+                        groups.push(tickets.subList(at + 1, tickets.size()));
+                    }
+                    if (at > 0) {
+                        groups.push(tickets.subList(0, at));
+                    }
+                } else {
+                    groupFallbacks.incrementAndGet();
+                    placeOneByOne(tickets);
+                }
+            }
+        }
+    }
+
+    // reached holds the index of the order being placed, so a failure can be pinned on it
+    private List<Order> placeAll(List<Ticket> tickets, int[] reached) {
+        Set<Long> itemIds = new HashSet<>();
+        for (Ticket ticket : tickets) {
+            ticket.order.getItems().forEach(line -> itemIds.add(line.getId()));
+        }
+        stockReservationService.lockItems(itemIds);
+        List<Order> placed = new ArrayList<>(tickets.size());
+        for (int i = 0; i < tickets.size(); i++) {
+            reached[0] = i;
+            placed.add(orderService.createOrder(tickets.get(i).order));
+        }
+        return placed;
+    }
+
+    private void placeOneByOne(List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            try {
+                confirm(ticket, transactionTemplate.execute(status -> orderService.createOrder(ticket.order)));
+            } catch (RuntimeException e) {
+                reject(ticket, e);
+            }
+        }
+    }
+
+    private void confirm(Ticket ticket, Order order) {
+        confirmed.incrementAndGet();
+        finish(ticket, new PendingOrderDTO(ticket.id, CONFIRMED, order.getId(), null, null));
+    }
+
+    private void reject(Ticket ticket, RuntimeException e) {
+        rejected.incrementAndGet();
+        PendingOrderDTO result;
+        if (e instanceof InsufficientStockException insufficient) {
+            result = new PendingOrderDTO(ticket.id, REJECTED, null, "Insufficient stock", insufficient.getItemIds());
+        } else if (e instanceof IllegalArgumentException) {
+            result = new PendingOrderDTO(ticket.id, REJECTED, null, e.getMessage(), null);
+        } else {
+            failed.incrementAndGet();
+            result = new PendingOrderDTO(ticket.id, REJECTED, null, "Order could not be placed", null);
+        }
+        finish(ticket, result);
+    }
+
+    // Recorded before the ticket leaves pending, so a status check never finds neither
+    private void finish(Ticket ticket, PendingOrderDTO result) {
+        finished.put(ticket.id, result);
+        pending.remove(ticket.id);
+        ticket.done.complete(result);
+    }
+
+    // The checks StockReservationService would make, done up front so bad input gets a 400
+    private static void validate(OrderDTO orderDTO) {
+        if (orderDTO.getItems() == null || orderDTO.getItems().isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one line");
+        }
+        for (FoodItemDTO line : orderDTO.getItems()) {
+            if (line.getId() == null || line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Each order line needs a food item id and a positive quantity");
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One-off migration of orders written before order_items existed: copies the lines in
+// orders.ordered_items_json into order_items, walking orders by id in chunks, one
+// transaction per chunk. Orders that already have lines are skipped, so it can be stopped
+// and rerun; it should run on a single instance at a time.
+@Component
+public class OrderItemBackfill {
+
+    static final int CHUNK_SIZE = 500;
+    private static final String SELECT_SQL = "SELECT o.id, o.ordered_items_json FROM orders o WHERE o.id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM order_items oi WHERE oi.order_id = o.id) ORDER BY o.id LIMIT " + CHUNK_SIZE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderItemWriter orderItemWriter;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong unreadableOrders = new AtomicLong();
+
+    public OrderItemBackfill(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             OrderItemWriter orderItemWriter,
+                             ObjectMapper objectMapper,
+                             @Value("${orders.order-items-backfill.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderItemWriter = orderItemWriter;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    // After startup, so the server is already taking requests while it runs
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    // Returns the number of order_items rows written
+    public long backfill() {
+        long written = 0;
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            long[] chunk = transactionTemplate.execute(status -> copyChunk(afterId));
+            if (chunk == null || chunk[0] == 0) {
+                break;
+            }
+            lastId = chunk[1];
+            written += chunk[2];
+        }
+        this.written.addAndGet(written);
+        return written;
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("written", written.get());
+        stats.put("unreadableOrders", unreadableOrders.get());
+        return stats;
+    }
+
+    // {orders read, last order id, rows written}
+    private long[] copyChunk(long afterId) {
+        List<Object[]> rows = new ArrayList<>();
+        long[] chunk = new long[3];
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            long orderId = rs.getLong("id");
+            chunk[0]++;
+            chunk[1] = orderId;
+            addLines(orderId, rs.getString("ordered_items_json"), rows);
+        }, afterId);
+        orderItemWriter.write(rows);
+        chunk[2] = rows.size();
+        return chunk;
+    }
+
+    private void addLines(long orderId, String orderedItemsJson, List<Object[]> rows) {
+        if (orderedItemsJson == null || orderedItemsJson.isBlank()) {
+            return;
+        }
+        try {
+            List<Object[]> lines = new ArrayList<>();
+            for (JsonNode line : objectMapper.readTree(orderedItemsJson)) {
+                if (!line.hasNonNull("id") || !line.hasNonNull("quantity")) {
+                    continue;
+                }
+                lines.add(new Object[] {orderId, line.get("id").asLong(), line.get("quantity").asInt(),
+                        line.hasNonNull("price") ? line.get("price").asDouble() : null});
+            }
+            rows.addAll(lines);
+        } catch (Exception e) {
+            // Unreadable lines stay in the JSON column only
+            unreadableOrders.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.dto.FoodItemDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes order_items rows as one JDBC batch; with rewriteBatchedStatements the driver
+// sends it as a single multi-row INSERT. Joins the caller's transaction.
+@Component
+public class OrderItemWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_items (order_id, item_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void write(Long orderId, List<FoodItemDTO> lines) {
+        List<Object[]> rows = new ArrayList<>(lines.size());
+        for (FoodItemDTO line : lines) {
+            rows.add(new Object[] {orderId, line.getId(), line.getQuantity(), line.getPrice()});
+        }
+        write(rows);
+    }
+
+    // Rows of (orderId, itemId, quantity, unitPrice)
+    public void write(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+}
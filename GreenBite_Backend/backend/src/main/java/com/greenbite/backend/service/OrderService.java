@@ -1,52 +1,82 @@
 package com.greenbite.backend.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.OrderDTO;
-import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.dto.OrderSummaryDTO;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.OrderChangedEvent;
 import com.greenbite.backend.model.Order;
 import com.greenbite.backend.repository.OrderRepository;
-import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.util.CursorCodec;
+import com.greenbite.backend.util.JsonArrayStreams;
+import com.greenbite.backend.util.KeysetPages;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final FoodItemRepository foodItemRepository;
+    private final StockReservationService stockReservationService;
+    private final OrderItemWriter orderItemWriter;
+    private final ApplicationEventPublisher eventPublisher;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    static final int DEFAULT_HISTORY_DAYS = 90;
+    static final int MAX_HISTORY_DAYS = 366;
 
-    public OrderService(OrderRepository orderRepository, FoodItemRepository foodItemRepository) {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    public OrderService(OrderRepository orderRepository, StockReservationService stockReservationService,
+                        OrderItemWriter orderItemWriter, ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
-        this.foodItemRepository = foodItemRepository;
+        this.stockReservationService = stockReservationService;
+        this.orderItemWriter = orderItemWriter;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
     public Order createOrder(OrderDTO orderDTO) {
+        return createOrder(orderDTO, null);
+    }
+
+    // (customerId, idempotencyKey) is unique, so a second order with the same key fails to insert
+    @Transactional
+    public Order createOrder(OrderDTO orderDTO, String idempotencyKey) {
         try {
-            // Convert items to JSON (only saving id and quantity)
+            // Take stock for every line; throws InsufficientStockException when a line would oversell
+            StockReservationService.Reservation reservation = stockReservationService.reserve(orderDTO.getItems());
+
+            // Convert items to JSON (only saving id and quantity); hot lines are marked so
+            // HotStockService can replay them if the process dies before they are settled
             String orderedItemsJson = objectMapper.writeValueAsString(
                     orderDTO.getItems().stream()
-                            .map(itemDTO -> Map.of("id", itemDTO.getId(), "quantity", itemDTO.getQuantity(), "price", itemDTO.getPrice()))
+                            .map(itemDTO -> reservation.isHot(itemDTO.getId())
+                                    ? Map.of("id", itemDTO.getId(), "quantity", itemDTO.getQuantity(), "price", itemDTO.getPrice(), "hot", true)
+                                    : Map.of("id", itemDTO.getId(), "quantity", itemDTO.getQuantity(), "price", itemDTO.getPrice()))
                             .collect(Collectors.toList())
             );
 
-            // Reduce stock for each food item
-            for (FoodItemDTO itemDTO : orderDTO.getItems()) {
-                FoodItem foodItem = foodItemRepository.findById(itemDTO.getId())
-                        .orElseThrow(() -> new RuntimeException("Food item not found"));
-                foodItem.setQuantity(foodItem.getQuantity() - itemDTO.getQuantity());
-                foodItemRepository.save(foodItem);
-            }
-
             // Create and save order
             LocalDateTime orderDate = orderDTO.getOrderDate() != null ? orderDTO.getOrderDate() : LocalDateTime.now();
             Order order = new Order(
@@ -60,10 +90,17 @@ public class OrderService {
                     orderDate,
                     orderDTO.getLatitude(),
                     orderDTO.getLongitude(),
-                    orderedItemsJson
+                    orderedItemsJson,
+                    reservation.hasHotLines() ? false : null,
+                    idempotencyKey
             );
 
-            return orderRepository.save(order);
+            order = orderRepository.save(order);
+            // The lines again as order_items rows, for SQL aggregates; one batch, same transaction
+            orderItemWriter.write(order.getId(), orderDTO.getItems());
+            reservation.setOrderId(order.getId());
+            eventPublisher.publishEvent(new OrderChangedEvent(ChangeType.CREATED, order, null));
+            return order;
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Error converting food items to JSON", e);
         }
@@ -80,10 +117,71 @@ public class OrderService {
         return orderRepository.findByShopId(shopId);
     }
 
+    // All orders, or one shop's when shopId is set
+    @Transactional(readOnly = true)
+    public void exportOrders(Long shopId, JsonGenerator generator) throws IOException {
+        try (Stream<Order> rows = shopId == null ? orderRepository.streamAll() : orderRepository.streamByShopId(shopId)) {
+            JsonArrayStreams.write(generator, rows, EXPORT_CHUNK_SIZE, Function.identity(), entityManager::clear);
+        }
+    }
+
     public List<Order> getOrdersByCustomerId(Long userId) {
         return orderRepository.findByCustomerId(userId);
     }
 
+    // Order history pages, newest first, within [from, to). to defaults to now and from to
+    // DEFAULT_HISTORY_DAYS before it; the cursor is the (orderDate, id) of the last row of the
+    // previous page, so every page is one range scan of the (customer_id, order_date) index.
+    public CursorPage<OrderSummaryDTO> getCustomerOrderHistory(Long customerId, LocalDateTime from, LocalDateTime to,
+                                                               String cursor, int size) {
+        HistoryWindow window = HistoryWindow.of(from, to, cursor);
+        int pageSize = KeysetPages.pageSize(size);
+        return historyPage(orderRepository.findCustomerHistory(customerId, window.from(), window.to(),
+                window.beforeDate(), window.beforeId(), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    // As getCustomerOrderHistory, on the (shop_id, order_date) index
+    public CursorPage<OrderSummaryDTO> getShopOrderHistory(Long shopId, LocalDateTime from, LocalDateTime to,
+                                                           String cursor, int size) {
+        HistoryWindow window = HistoryWindow.of(from, to, cursor);
+        int pageSize = KeysetPages.pageSize(size);
+        return historyPage(orderRepository.findShopHistory(shopId, window.from(), window.to(),
+                window.beforeDate(), window.beforeId(), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    private record HistoryWindow(LocalDateTime from, LocalDateTime to, LocalDateTime beforeDate, Long beforeId) {
+
+        static HistoryWindow of(LocalDateTime from, LocalDateTime to, String cursor) {
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : end.minusDays(DEFAULT_HISTORY_DAYS);
+            if (!start.isBefore(end)) {
+                throw new IllegalArgumentException("from must be before to");
+            }
+            if (start.isBefore(end.minusDays(MAX_HISTORY_DAYS))) {
+                throw new IllegalArgumentException("The window may span at most " + MAX_HISTORY_DAYS + " days");
+            }
+            if (cursor == null || cursor.isBlank()) {
+                // Everything before the end of the window
+                return new HistoryWindow(start, end, end, Long.MAX_VALUE);
+            }
+            String[] parts = CursorCodec.decode(cursor, 2);
+            try {
+                return new HistoryWindow(start, end, LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+    }
+
+    // rows are fetched with a limit of pageSize + 1; the extra row only signals that more pages exist
+    private static CursorPage<OrderSummaryDTO> historyPage(List<OrderSummaryDTO> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummaryDTO> page = hasMore ? rows.subList(0, pageSize) : rows;
+        OrderSummaryDTO last = page.isEmpty() ? null : page.get(page.size() - 1);
+        String nextCursor = hasMore ? CursorCodec.encode(last.getOrderDate(), last.getId()) : null;
+        return new CursorPage<>(page, nextCursor);
+    }
+
     public float getTotalCaloriesConsumed(Long customerId) {
         return (float) orderRepository.findByCustomerId(customerId)
                 .stream()
@@ -96,8 +194,13 @@ public class OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
+        String previousStatus = order.getStatus();
         order.setStatus(newStatus);
-        return orderRepository.save(order);
+        order = orderRepository.save(order);
+        if (!Objects.equals(previousStatus, newStatus)) {
+            eventPublisher.publishEvent(new OrderChangedEvent(ChangeType.UPDATED, order, previousStatus));
+        }
+        return order;
     }
 
 }
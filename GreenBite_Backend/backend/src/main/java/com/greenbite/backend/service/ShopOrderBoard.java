@@ -0,0 +1,124 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.OrderChangedEvent;
+import com.greenbite.backend.model.Order;
+import com.greenbite.backend.repository.OrderRepository;
+import com.greenbite.backend.util.SseRegistry;
+import com.greenbite.backend.util.SseSubscriber;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+// Live order board for shops, pushed over server-sent events instead of polling
+// /shop_order/{shopId}. On connect a shop gets a "snapshot" of its open orders, then
+// "created" and "status" events carrying the whole order, which the board applies as
+// upserts; an order whose status is closed can be taken off. The subscriber is registered
+// paused before the snapshot is read, so a change committed meanwhile is queued behind the
+// snapshot rather than lost; at worst an order arrives in both.
+@Component
+public class ShopOrderBoard {
+
+    private final OrderRepository orderRepository;
+    private final Set<String> closedStatuses;
+    private final long timeoutMillis;
+    private final SseRegistry<Long> registry;
+
+    @Autowired
+    public ShopOrderBoard(
+            OrderRepository orderRepository,
+            ObjectMapper objectMapper,
+            @Value("${orders.board.closed-statuses:completed,delivered,cancelled,canceled,rejected}") List<String> closedStatuses,
+            @Value("${orders.board.queue-capacity:256}") int queueCapacity,
+            @Value("${orders.board.max-subscribers:5000}") int maxSubscribers,
+            @Value("${orders.board.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${orders.board.send-timeout-ms:10000}") long sendTimeoutMillis,
+            @Value("${orders.board.sender-threads:2}") int senderThreads) {
+        this(orderRepository, objectMapper, closedStatuses, queueCapacity, maxSubscribers, timeoutMillis, sendTimeoutMillis,
+                SseRegistry.senderPool(senderThreads, "order-board-sender"));
+    }
+
+    ShopOrderBoard(OrderRepository orderRepository, ObjectMapper objectMapper, List<String> closedStatuses,
+                   int queueCapacity, int maxSubscribers, long timeoutMillis, long sendTimeoutMillis, Executor executor) {
+        this.orderRepository = orderRepository;
+        this.closedStatuses = closedStatuses.stream()
+                .map(status -> status.trim().toLowerCase())
+                .filter(status -> !status.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.timeoutMillis = timeoutMillis;
+        this.registry = new SseRegistry<>("order board", objectMapper, queueCapacity, maxSubscribers,
+                sendTimeoutMillis, executor);
+    }
+
+    public SseEmitter subscribe(Long shopId) {
+        return subscribe(new SseEmitter(timeoutMillis), shopId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long shopId) {
+        if (shopId == null) {
+            throw new IllegalArgumentException("A shop id is required");
+        }
+        SseSubscriber subscriber = registry.register(shopId, emitter, true);
+
+        SseSubscriber.Event snapshot;
+        try {
+            List<Order> open = orderRepository.findOpenByShopId(shopId, closedStatuses);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("shopId", shopId);
+            body.put("orders", open);
+            snapshot = registry.event("snapshot", body);
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        subscriber.start(snapshot);
+        return emitter;
+    }
+
+    public boolean isOpen(String status) {
+        return status == null || !closedStatuses.contains(status.toLowerCase());
+    }
+
+    // Runs after the order's transaction commits, on the writer's thread; only queues
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        Set<SseSubscriber> subscribers = registry.group(event.shopId());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("orderId", event.orderId());
+        body.put("previousStatus", event.previousStatus());
+        body.put("open", isOpen(event.order().getStatus()));
+        body.put("order", event.order());
+        registry.publish(subscribers, registry.event(event.type() == ChangeType.CREATED ? "created" : "status", body));
+    }
+
+    @Scheduled(fixedDelayString = "${orders.board.heartbeat-ms:25000}")
+    public void heartbeat() {
+        registry.heartbeat();
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = registry.stats();
+        stats.put("shops", (long) registry.groupCount());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        registry.shutdown();
+    }
+}
@@ -1,9 +1,7 @@
 package com.greenbite.backend.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.greenbite.backend.model.Order;
-import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.OrderItemRepository;
 import com.greenbite.backend.repository.OrderRepository;
 import org.springframework.stereotype.Service;
 
@@ -16,11 +14,11 @@ import java.util.Map;
 public class ShopSalesService {
 
     private final OrderRepository orderRepository;
-    private final ObjectMapper objectMapper;
+    private final OrderItemRepository orderItemRepository;
 
-    public ShopSalesService(OrderRepository orderRepository, ObjectMapper objectMapper) {
+    public ShopSalesService(OrderRepository orderRepository, OrderItemRepository orderItemRepository) {
         this.orderRepository = orderRepository;
-        this.objectMapper = objectMapper;
+        this.orderItemRepository = orderItemRepository;
     }
 
     public float calculateTotalSales(Long shopId, LocalDateTime startDate, LocalDateTime endDate) {
@@ -34,32 +32,13 @@ public class ShopSalesService {
         System.out.println(orders);
         return (float) orders.stream().mapToDouble(Order::getTotalAmount).sum();
     }
+    // Per-item revenue summed in SQL over order_items, via idx_orders_shop_date and idx_order_items_order
     public Map<Long, Double> getTotalSalesByShop(Long shopId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Order> orders = orderRepository.findByShopIdAndOrderDateBetween(shopId, startDate, endDate);
         Map<Long, Double> itemSalesRevenue = new HashMap<>();
-
-        for (Order order : orders) {
-            try {
-                // Deserialize orderedItemsJson
-                List<Map<String, Object>> orderedItems = objectMapper.readValue(
-                        order.getOrderedItemsJson(),
-                        new TypeReference<List<Map<String, Object>>>() {}
-                );
-
-                for (Map<String, Object> item : orderedItems) {
-                    Long itemId = ((Number) item.get("id")).longValue();
-                    Integer quantity = ((Number) item.get("quantity")).intValue();
-                    Double price = ((Number) item.get("price")).doubleValue();
-
-                    // Calculate total sales for the item
-                    double totalSales = quantity * price;
-                    itemSalesRevenue.put(itemId, itemSalesRevenue.getOrDefault(itemId, 0.0) + totalSales);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        for (Object[] row : orderItemRepository.sumRevenueByItem(shopId, startDate, endDate)) {
+            Number revenue = (Number) row[1];
+            itemSalesRevenue.put((Long) row[0], revenue != null ? revenue.doubleValue() : 0.0);
         }
-
         return itemSalesRevenue; // Returns {itemId → totalSales}
     }
 
@@ -0,0 +1,51 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.util.GeoGridIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+// In-memory grid of shop id -> coordinates, kept in sync by FoodShopService
+@Component
+public class ShopSpatialIndex {
+
+    private final GeoGridIndex grid;
+
+    public ShopSpatialIndex(@Value("${shop.spatial-index.cell-size-degrees:0.05}") double cellSizeDegrees) {
+        this.grid = new GeoGridIndex(cellSizeDegrees);
+    }
+
+    public void rebuild(Collection<FoodShop> shops) {
+        grid.clear();
+        shops.forEach(this::put);
+    }
+
+    public void put(FoodShop shop) {
+        if (shop.getId() != null) {
+            grid.put(shop.getId(), shop.getLatitude(), shop.getLongitude());
+        }
+    }
+
+    public void remove(Long shopId) {
+        grid.remove(shopId);
+    }
+
+    public List<Long> findShopIdsWithinRadius(double lat, double lon, double radiusKm) {
+        return grid.findWithinRadius(lat, lon, radiusKm);
+    }
+
+    public void forEachWithinRadius(double lat, double lon, double radiusKm, GeoGridIndex.HitConsumer consumer) {
+        grid.forEachWithinRadius(lat, lon, radiusKm, consumer);
+    }
+
+    public double[] position(Long shopId) {
+        return grid.position(shopId);
+    }
+
+    public int size() {
+        return grid.size();
+    }
+}
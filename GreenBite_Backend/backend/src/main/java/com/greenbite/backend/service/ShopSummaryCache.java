@@ -0,0 +1,95 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.FoodShopChangedEvent;
+import com.greenbite.backend.repository.FoodShopRepository;
+import com.greenbite.backend.util.TtlLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Bounded id -> (name, photo, coordinates) cache for the shop fields item listings need.
+// Misses are loaded together with one projection query per chunk of ids.
+@Component
+public class ShopSummaryCache {
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    public record ShopSummary(Long id, String name, String photo, Double latitude, Double longitude) {
+    }
+
+    private final FoodShopRepository foodShopRepository;
+    private final TtlLruCache<Long, ShopSummary> cache;
+
+    // Bumped on every invalidation so a load that started before it cannot store stale rows
+    private long generation;
+
+    public ShopSummaryCache(
+            FoodShopRepository foodShopRepository,
+            @Value("${shop.summary-cache.max-entries:50000}") int maxEntries,
+            @Value("${shop.summary-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.foodShopRepository = foodShopRepository;
+        this.cache = new TtlLruCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    // Null when the shop does not exist
+    public ShopSummary get(Long shopId) {
+        return shopId == null ? null : getAll(List.of(shopId)).get(shopId);
+    }
+
+    public Map<Long, ShopSummary> getAll(Collection<Long> shopIds) {
+        Map<Long, ShopSummary> summaries = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long shopId : shopIds) {
+            if (shopId == null || summaries.containsKey(shopId) || missing.contains(shopId)) {
+                continue;
+            }
+            ShopSummary summary = cache.get(shopId);
+            if (summary != null) {
+                summaries.put(shopId, summary);
+            } else {
+                missing.add(shopId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return summaries;
+        }
+
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        List<ShopSummary> loaded = new ArrayList<>(missing.size());
+        List<Long> ids = new ArrayList<>(missing);
+        for (int from = 0; from < ids.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + LOAD_CHUNK_SIZE, ids.size()));
+            for (Object[] row : foodShopRepository.findSummariesByIdIn(chunk)) {
+                loaded.add(new ShopSummary((Long) row[0], (String) row[1], (String) row[2], (Double) row[3], (Double) row[4]));
+            }
+        }
+
+        synchronized (this) {
+            boolean current = loadGeneration == generation;
+            for (ShopSummary summary : loaded) {
+                summaries.put(summary.id(), summary);
+                if (current) {
+                    cache.put(summary.id(), summary);
+                }
+            }
+        }
+        return summaries;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFoodShopChanged(FoodShopChangedEvent event) {
+        generation++;
+        cache.remove(event.shopId());
+    }
+}
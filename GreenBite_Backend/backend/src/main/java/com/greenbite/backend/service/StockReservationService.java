@@ -0,0 +1,208 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Takes stock for order lines. Items in hot mode are taken from HotStockService's
+// in-memory counters; the rest get one conditional UPDATE per item, sent as a single
+// JDBC batch. Either way the check and the decrement are one atomic step, so
+// concurrent orders cannot lose updates or drive quantity below zero.
+@Service
+public class StockReservationService {
+
+    private static final String RESERVE_SQL =
+            "UPDATE food_items SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String SELECT_SQL =
+            "SELECT id, name, description, price, quantity, tags, shop_id, category FROM food_items WHERE id IN (:ids)";
+
+    private static final String LOCK_SQL = "SELECT id FROM food_items WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+    private static final int LOCK_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final HotStockService hotStockService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, HotStockService hotStockService,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.hotStockService = hotStockService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // What an order took. Hot lines reach food_items later, once the order id is known
+    // and the transaction has committed.
+    public static final class Reservation {
+        private final Map<Long, Integer> hotQuantities = new TreeMap<>();
+        private final List<Hold> holds = new ArrayList<>();
+        private volatile Long orderId;
+
+        public boolean isHot(Long itemId) {
+            return hotQuantities.containsKey(itemId);
+        }
+
+        public boolean hasHotLines() {
+            return !hotQuantities.isEmpty();
+        }
+
+        public void setOrderId(Long orderId) {
+            this.orderId = orderId;
+        }
+    }
+
+    // quantity is 0 when the take failed; settle is false when food_items was already updated
+    private record Hold(HotStockService.HotItem item, Long itemId, int quantity, boolean settle) {
+    }
+
+    // Runs in the order's transaction: when any line fails, the decrements already made
+    // by the batch are rolled back with the order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Reservation reserve(List<FoodItemDTO> lines) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock can only be reserved inside a transaction");
+        }
+        // One row per item, updated in id order so two orders never lock rows in opposite order
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (FoodItemDTO line : lines) {
+            if (line.getId() == null || line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Each order line needs a food item id and a positive quantity");
+            }
+            quantities.merge(line.getId(), line.getQuantity(), Integer::sum);
+        }
+
+        Reservation reservation = new Reservation();
+        try {
+            List<FoodItemChangedEvent> events = take(quantities, reservation);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    finish(reservation, status == STATUS_COMMITTED);
+                }
+            });
+            events.forEach(eventPublisher::publishEvent);
+            return reservation;
+        } catch (RuntimeException e) {
+            finish(reservation, false);
+            throw e;
+        }
+    }
+
+    // Row-locks the non-hot items in id order ahead of several reservations made in one
+    // transaction. Each reservation locks its own items in id order, but across orders the
+    // locks would interleave; taken up front, every transaction locks in one global order.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockItems(Collection<Long> itemIds) {
+        List<Long> cold = new ArrayList<>(new TreeSet<>(itemIds));
+        cold.removeIf(itemId -> itemId == null || hotStockService.isHot(itemId));
+        for (int from = 0; from < cold.size(); from += LOCK_CHUNK_SIZE) {
+            namedJdbcTemplate.queryForList(LOCK_SQL,
+                    Map.of("ids", cold.subList(from, Math.min(from + LOCK_CHUNK_SIZE, cold.size()))), Long.class);
+        }
+    }
+
+    private List<FoodItemChangedEvent> take(Map<Long, Integer> quantities, Reservation reservation) {
+        List<Long> insufficient = new ArrayList<>();
+        List<FoodItemChangedEvent> events = new ArrayList<>();
+        Map<Long, Integer> cold = new TreeMap<>();
+
+        for (Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long itemId = entry.getKey();
+            int quantity = entry.getValue();
+            HotStockService.HotItem item = hotStockService.acquire(itemId);
+            if (item == null) {
+                cold.put(itemId, quantity);
+            } else if (hotStockService.tryTake(item, quantity)) {
+                reservation.holds.add(new Hold(item, itemId, quantity, true));
+                reservation.hotQuantities.put(itemId, quantity);
+                int after = item.available();
+                events.add(new FoodItemChangedEvent(ChangeType.STOCK_CHANGED,
+                        item.snapshot(after + quantity), item.snapshot(after)));
+            } else {
+                reservation.holds.add(new Hold(item, itemId, 0, false));
+                insufficient.add(itemId);
+            }
+        }
+        if (cold.isEmpty()) {
+            if (!insufficient.isEmpty()) {
+                throw new InsufficientStockException(insufficient);
+            }
+            return events;
+        }
+
+        List<Object[]> arguments = new ArrayList<>(cold.size());
+        for (Entry<Long, Integer> entry : cold.entrySet()) {
+            arguments.add(new Object[] {entry.getValue(), entry.getKey(), entry.getValue()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(RESERVE_SQL, arguments);
+
+        Map<Long, FoodItemSnapshot> current = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_SQL, Map.of("ids", cold.keySet()), rs -> {
+            FoodItemSnapshot snapshot = HotStockService.snapshot(rs);
+            current.put(snapshot.id(), snapshot);
+        });
+
+        int i = 0;
+        for (Entry<Long, Integer> entry : cold.entrySet()) {
+            Long itemId = entry.getKey();
+            int quantity = entry.getValue();
+            if (!current.containsKey(itemId)) {
+                throw new RuntimeException("Food item not found");
+            }
+            if (counts[i++] != 1) {
+                insufficient.add(itemId);
+                continue;
+            }
+            // The item went hot after it was routed here; its counter was read before this
+            // update, so the counter has to give up the same quantity
+            HotStockService.HotItem late = hotStockService.acquire(itemId);
+            if (late != null) {
+                boolean taken = hotStockService.tryTake(late, quantity);
+                reservation.holds.add(new Hold(late, itemId, taken ? quantity : 0, false));
+                if (!taken) {
+                    insufficient.add(itemId);
+                    continue;
+                }
+            }
+            FoodItemSnapshot after = current.get(itemId);
+            FoodItemSnapshot before = new FoodItemSnapshot(after.id(), after.name(), after.description(), after.price(),
+                    after.quantity() + quantity, after.tags(), after.shopId(), after.category());
+            events.add(new FoodItemChangedEvent(ChangeType.STOCK_CHANGED, before, after));
+        }
+        if (!insufficient.isEmpty()) {
+            throw new InsufficientStockException(insufficient);
+        }
+        return events;
+    }
+
+    // Queues the settlement before the holds are released, so a cool-down or a facet
+    // reconciliation never sees neither
+    private void finish(Reservation reservation, boolean committed) {
+        if (committed && reservation.hasHotLines()) {
+            hotStockService.settleLater(reservation.orderId, reservation.hotQuantities);
+        }
+        for (Hold hold : reservation.holds) {
+            hotStockService.complete(hold.item(), hold.quantity(), committed);
+        }
+        reservation.holds.clear();
+    }
+}
@@ -0,0 +1,134 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.repository.UserRepository;
+import com.greenbite.backend.util.TtlLruCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Last-write-wins buffer for user location updates, written to the users table in one
+// JDBC batch per flush instead of a findById + save per request
+@Component
+public class UserLocationBuffer {
+
+    public record Location(Double latitude, Double longitude) {
+    }
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserLocationIndex userLocationIndex;
+
+    private final Map<Long, Location> pending = new ConcurrentHashMap<>();
+    // Taken out of pending but not yet committed; still served to readers
+    private final Map<Long, Location> flushing = new ConcurrentHashMap<>();
+    // Users that passed the existence check recently; bounded, a user that drops out is just checked again
+    private final TtlLruCache<Long, Boolean> knownUsers;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    public UserLocationBuffer(UserRepository userRepository, JdbcTemplate jdbcTemplate, UserLocationIndex userLocationIndex,
+                              @Value("${users.location-buffer.known-users-max:100000}") int knownUsersMax,
+                              @Value("${users.location-buffer.known-users-ttl-seconds:3600}") long knownUsersTtlSeconds) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userLocationIndex = userLocationIndex;
+        this.knownUsers = new TtlLruCache<>(knownUsersMax, knownUsersTtlSeconds * 1000);
+    }
+
+    public void update(Long userId, Double latitude, Double longitude) {
+        // Only the first update of a user in a while pays for the existence check
+        if (knownUsers.get(userId) == null) {
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("User not found");
+            }
+            knownUsers.put(userId, Boolean.TRUE);
+        }
+        pending.put(userId, new Location(latitude, longitude));
+        // The index reflects the latest location right away, not after the flush
+        userLocationIndex.put(userId, latitude, longitude);
+    }
+
+    // Latest location not yet written to the database, or null
+    public Location bufferedLocation(Long userId) {
+        Location location = pending.get(userId);
+        return location != null ? location : flushing.get(userId);
+    }
+
+    // flushing goes first, so a failed batch that is being put back cannot requeue the user
+    public void forget(Long userId) {
+        knownUsers.remove(userId);
+        flushing.remove(userId);
+        pending.remove(userId);
+        userLocationIndex.remove(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${users.location-buffer.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Long> userIds = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, Location> entry : pending.entrySet()) {
+            Long userId = entry.getKey();
+            Location location = entry.getValue();
+            // Moved to flushing under the entry's lock, and only if no newer update replaced it,
+            // so readers never miss the value and a superseded one is never left behind
+            boolean[] moved = new boolean[1];
+            pending.computeIfPresent(userId, (k, current) -> {
+                if (!current.equals(location)) {
+                    return current;
+                }
+                flushing.put(k, current);
+                moved[0] = true;
+                return null;
+            });
+            if (moved[0]) {
+                userIds.add(userId);
+                batch.add(new Object[]{location.latitude(), location.longitude(), userId});
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("UPDATE users SET latitude = ?, longitude = ? WHERE id = ?", batch);
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            // Put back whatever has not been superseded and retry on the next flush. Done under
+            // the flushing entry's lock, so a user forgotten meanwhile is not put back.
+            for (Long userId : userIds) {
+                flushing.computeIfPresent(userId, (k, location) -> {
+                    pending.putIfAbsent(k, location);
+                    return location;
+                });
+            }
+            failedFlushes.incrementAndGet();
+        } finally {
+            for (Long userId : userIds) {
+                flushing.remove(userId);
+            }
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("pending", (long) pending.size());
+        stats.put("written", written.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
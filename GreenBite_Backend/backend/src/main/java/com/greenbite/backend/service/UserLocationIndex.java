@@ -0,0 +1,49 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.repository.UserRepository;
+import com.greenbite.backend.util.GeoGridIndex;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// In-memory grid of user id -> last known location, loaded at startup and kept in sync by UserLocationBuffer
+@Component
+public class UserLocationIndex {
+
+    private final UserRepository userRepository;
+    private final GeoGridIndex grid;
+
+    public UserLocationIndex(UserRepository userRepository,
+                             @Value("${users.location-index.cell-size-degrees:0.05}") double cellSizeDegrees) {
+        this.userRepository = userRepository;
+        this.grid = new GeoGridIndex(cellSizeDegrees);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        grid.clear();
+        for (Object[] row : userRepository.findAllLocations()) {
+            grid.put((Long) row[0], (Double) row[1], (Double) row[2]);
+        }
+    }
+
+    public void put(Long userId, Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            grid.remove(userId);
+        } else {
+            grid.put(userId, latitude, longitude);
+        }
+    }
+
+    public void remove(Long userId) {
+        grid.remove(userId);
+    }
+
+    public void forEachWithinRadius(double lat, double lon, double radiusKm, GeoGridIndex.HitConsumer consumer) {
+        grid.forEachWithinRadius(lat, lon, radiusKm, consumer);
+    }
+
+    public int size() {
+        return grid.size();
+    }
+}
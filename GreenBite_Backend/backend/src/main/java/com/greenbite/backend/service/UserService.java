@@ -1,5 +1,7 @@
 package com.greenbite.backend.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.greenbite.backend.dto.CursorPage;
 import com.greenbite.backend.dto.LocationUpdateDTO;
 import com.greenbite.backend.dto.UserDTO;
 import com.greenbite.backend.model.Coupon;
@@ -8,14 +10,23 @@ import com.greenbite.backend.model.User;
 import com.greenbite.backend.repository.CouponRepository;
 import com.greenbite.backend.repository.CouponManagementRepository;
 import com.greenbite.backend.repository.UserRepository;
+import com.greenbite.backend.util.JsonArrayStreams;
+import com.greenbite.backend.util.KeysetPages;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -23,12 +34,20 @@ public class UserService {
     private final CouponRepository couponRepository;
     private final CouponManagementRepository couponManagementRepository;
     private final FileStorageService fileStorageService;
+    private final UserLocationBuffer userLocationBuffer;
 
-    public UserService(UserRepository userRepository, CouponRepository couponRepository, CouponManagementRepository couponManagementRepository, FileStorageService fileStorageService) {
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public UserService(UserRepository userRepository, CouponRepository couponRepository, CouponManagementRepository couponManagementRepository, FileStorageService fileStorageService,
+                       UserLocationBuffer userLocationBuffer) {
         this.userRepository = userRepository;
         this.couponRepository = couponRepository;
         this.couponManagementRepository = couponManagementRepository;
         this.fileStorageService=fileStorageService;
+        this.userLocationBuffer = userLocationBuffer;
     }
 
     public UserDTO getUserById(Long id) {
@@ -63,17 +82,30 @@ public class UserService {
     }
 
     // NEW: Update the user’s location
-    public UserDTO updateUserLocation(LocationUpdateDTO dto) {
+    // Buffered and written in batches by UserLocationBuffer
+    public void updateUserLocation(LocationUpdateDTO dto) {
+        userLocationBuffer.update(dto.getUserId(), dto.getLatitude(), dto.getLongitude());
+    }
 
+    public Map<String, Long> getLocationBufferStats() {
+        return userLocationBuffer.stats();
+    }
 
+    // Buffered location first, so a read right after an update sees it
+    public Map<String, Double> getUserLocation(Long userId) {
+        Map<String, Double> location = new HashMap<>();
+        UserLocationBuffer.Location buffered = userLocationBuffer.bufferedLocation(userId);
+        if (buffered != null) {
+            location.put("latitude", buffered.latitude());
+            location.put("longitude", buffered.longitude());
+            return location;
+        }
 
-        User user = userRepository.findById(dto.getUserId())
+        User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-
-        user.setLatitude(dto.getLatitude());
-        user.setLongitude(dto.getLongitude());
-        userRepository.save(user);
-        return convertToDTO(user);
+        location.put("latitude", user.getLatitude());
+        location.put("longitude", user.getLongitude());
+        return location;
     }
 
     private UserDTO convertToDTO(User user) {
@@ -139,13 +171,34 @@ public class UserService {
     public List<UserDTO> getAllUsers() {
         List<User> users = userRepository.findAll();
         return users.stream()
-                .map(user -> new UserDTO(user.getId(), user.getUsername(), user.getEmail(), null, user.getPhoneNumber(), user.getAddress(), user.getShopId()))
+                .map(this::convertToListDTO)
                 .collect(Collectors.toList());
     }
 
+    public CursorPage<UserDTO> getUsersPage(String cursor, int size) {
+        int pageSize = KeysetPages.pageSize(size);
+        List<User> rows = userRepository.findByIdGreaterThanOrderByIdAsc(KeysetPages.afterId(cursor), Limit.of(pageSize + 1));
+        return KeysetPages.page(rows, pageSize, User::getId,
+                users -> users.stream().map(this::convertToListDTO).collect(Collectors.toList()));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportUsers(JsonGenerator generator) throws IOException {
+        try (Stream<User> rows = userRepository.streamAll()) {
+            JsonArrayStreams.write(generator, rows, EXPORT_CHUNK_SIZE,
+                    users -> users.stream().map(this::convertToListDTO).collect(Collectors.toList()),
+                    entityManager::clear);
+        }
+    }
+
+    private UserDTO convertToListDTO(User user) {
+        return new UserDTO(user.getId(), user.getUsername(), user.getEmail(), null, user.getPhoneNumber(), user.getAddress(), user.getShopId());
+    }
+
     public void deleteUserById(Long userId) {
         if (userRepository.existsById(userId)) {
             userRepository.deleteById(userId);
+            userLocationBuffer.forget(userId);
         } else {
             throw new RuntimeException("User not found with ID: " + userId);
         }
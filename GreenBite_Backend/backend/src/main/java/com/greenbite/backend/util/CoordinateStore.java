@@ -0,0 +1,111 @@
+package com.greenbite.backend.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Structure-of-arrays id -> coordinates. Besides lat/lon every point keeps its unit
+// vector (cos lat cos lon, cos lat sin lon, sin lat), precomputed for DistanceKernel.
+// Removal swaps the last slot into the hole, so slots are dense. Not thread-safe.
+public class CoordinateStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] z = new double[INITIAL_CAPACITY];
+    private int size;
+
+    // Returns the previous {lat, lon} of the id, or null if it was not stored
+    public double[] put(long id, double lat, double lon) {
+        Integer slot = slots.get(id);
+        double[] previous = null;
+        if (slot == null) {
+            ensureCapacity(size + 1);
+            slot = size++;
+            slots.put(id, slot);
+            ids[slot] = id;
+        } else {
+            previous = new double[]{latitudes[slot], longitudes[slot]};
+        }
+
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        double cosLat = Math.cos(latRad);
+        latitudes[slot] = lat;
+        longitudes[slot] = lon;
+        x[slot] = cosLat * Math.cos(lonRad);
+        y[slot] = cosLat * Math.sin(lonRad);
+        z[slot] = Math.sin(latRad);
+        return previous;
+    }
+
+    public double[] remove(long id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return null;
+        }
+        double[] previous = new double[]{latitudes[slot], longitudes[slot]};
+
+        int last = --size;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            latitudes[slot] = latitudes[last];
+            longitudes[slot] = longitudes[last];
+            x[slot] = x[last];
+            y[slot] = y[last];
+            z[slot] = z[last];
+            slots.put(ids[slot], slot);
+        }
+        return previous;
+    }
+
+    public void clear() {
+        slots.clear();
+        size = 0;
+    }
+
+    public double[] position(long id) {
+        Integer slot = slots.get(id);
+        return slot == null ? null : new double[]{latitudes[slot], longitudes[slot]};
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long idAt(int slot) {
+        return ids[slot];
+    }
+
+    // Haversine "a" term between the stored point and the query, or NaN if the id is unknown
+    public double haversineTerm(long id, DistanceKernel.Query query) {
+        Integer slot = slots.get(id);
+        if (slot == null) {
+            return Double.NaN;
+        }
+        double dot = x[slot] * query.x() + y[slot] * query.y() + z[slot] * query.z();
+        return 0.5 * (1 - dot);
+    }
+
+    public void filter(DistanceKernel kernel, DistanceKernel.Query query, DistanceKernel.SlotConsumer consumer) {
+        kernel.filter(x, y, z, size, query, consumer);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        latitudes = Arrays.copyOf(latitudes, newCapacity);
+        longitudes = Arrays.copyOf(longitudes, newCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        z = Arrays.copyOf(z, newCapacity);
+    }
+}
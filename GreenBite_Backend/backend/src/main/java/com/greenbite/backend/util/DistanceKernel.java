@@ -0,0 +1,38 @@
+package com.greenbite.backend.util;
+
+// Filters a structure-of-arrays coordinate block against a radius. Points are stored as
+// unit vectors on the sphere (built from precomputed sin/cos of lat and lon), so the hot
+// loop is a single dot product per point: cos(angle) = p . q, and the haversine term
+// a = sin^2(angle / 2) = (1 - p . q) / 2.
+public interface DistanceKernel {
+
+    @FunctionalInterface
+    interface SlotConsumer {
+        // haversineTerm is the "a" of the haversine formula for the matching slot
+        void accept(int slot, double haversineTerm);
+    }
+
+    void filter(double[] x, double[] y, double[] z, int size, Query query, SlotConsumer consumer);
+
+    String name();
+
+    record Query(double x, double y, double z, double minDot) {
+
+        public static Query of(double lat, double lon, double radiusKm) {
+            double latRad = Math.toRadians(lat);
+            double lonRad = Math.toRadians(lon);
+            double cosLat = Math.cos(latRad);
+            double angle = radiusKm / GeoUtils.EARTH_RADIUS;
+            double minDot = angle >= Math.PI ? -1 : Math.cos(angle);
+            return new Query(cosLat * Math.cos(lonRad), cosLat * Math.sin(lonRad), Math.sin(latRad), minDot);
+        }
+
+        public double maxHaversineTerm() {
+            return 0.5 * (1 - minDot);
+        }
+
+        public static double distanceKm(double haversineTerm) {
+            return 2 * GeoUtils.EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(Math.max(0, haversineTerm))));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.greenbite.backend.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Fixed lat/lon grid of id -> coordinates. Coordinates live in a CoordinateStore; small
+// radii visit only the overlapping cells, large radii scan the store with a DistanceKernel.
+public class GeoGridIndex {
+
+    @FunctionalInterface
+    public interface HitConsumer {
+        void accept(long id, double distanceKm);
+    }
+
+    private final double cellSizeDegrees;
+    private final int lonCells;
+    private final DistanceKernel kernel;
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final CoordinateStore store = new CoordinateStore();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GeoGridIndex(double cellSizeDegrees) {
+        this(cellSizeDegrees, new ScalarDistanceKernel());
+    }
+
+    public GeoGridIndex(double cellSizeDegrees, DistanceKernel kernel) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 180) {
+            throw new IllegalArgumentException("Cell size must be in (0, 180] degrees");
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.lonCells = (int) Math.ceil(360 / cellSizeDegrees);
+        this.kernel = kernel;
+    }
+
+    public void put(long id, double lat, double lon) {
+        lock.writeLock().lock();
+        try {
+            double[] previous = store.put(id, lat, lon);
+            long cell = cellKey(latIndex(lat), lonIndex(lon));
+            if (previous != null) {
+                long previousCell = cellKey(latIndex(previous[0]), lonIndex(previous[1]));
+                if (previousCell == cell) {
+                    return;
+                }
+                removeFromCell(previousCell, id);
+            }
+            cells.computeIfAbsent(cell, key -> new HashSet<>()).add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            double[] previous = store.remove(id);
+            if (previous != null) {
+                removeFromCell(cellKey(latIndex(previous[0]), lonIndex(previous[1])), id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            store.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public double[] position(long id) {
+        lock.readLock().lock();
+        try {
+            return store.position(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return store.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> findWithinRadius(double lat, double lon, double radiusKm) {
+        List<Long> ids = new ArrayList<>();
+        forEachWithinRadius(lat, lon, radiusKm, (id, distance) -> ids.add(id));
+        return ids;
+    }
+
+    // Hits are collected under the read lock and handed to the consumer after it is released
+    public void forEachWithinRadius(double lat, double lon, double radiusKm, HitConsumer consumer) {
+        DistanceKernel.Query query = DistanceKernel.Query.of(lat, lon, radiusKm);
+        double maxTerm = query.maxHaversineTerm();
+        Hits hits = new Hits();
+
+        lock.readLock().lock();
+        try {
+            GeoUtils.BoundingBox box = GeoUtils.boundingBox(lat, lon, radiusKm);
+            int minLatIndex = latIndex(box.minLat());
+            int maxLatIndex = latIndex(box.maxLat());
+            int minLonIndex = (int) Math.floor((box.minLon() + 180) / cellSizeDegrees);
+            int maxLonIndex = (int) Math.floor((box.maxLon() + 180) / cellSizeDegrees);
+            if (maxLonIndex - minLonIndex + 1 >= lonCells) {
+                minLonIndex = 0;
+                maxLonIndex = lonCells - 1;
+            }
+
+            long cellsToVisit = (long) (maxLatIndex - minLatIndex + 1) * (maxLonIndex - minLonIndex + 1);
+            if (cellsToVisit >= cells.size()) {
+                // Visiting the cells would cost more than one pass over every point
+                store.filter(kernel, query, (slot, a) -> hits.add(store.idAt(slot), a));
+            } else {
+                for (int latIndex = minLatIndex; latIndex <= maxLatIndex; latIndex++) {
+                    for (int lonIndex = minLonIndex; lonIndex <= maxLonIndex; lonIndex++) {
+                        Set<Long> ids = cells.get(cellKey(latIndex, Math.floorMod(lonIndex, lonCells)));
+                        if (ids == null) {
+                            continue;
+                        }
+                        for (Long id : ids) {
+                            double a = store.haversineTerm(id, query);
+                            if (a <= maxTerm) {
+                                hits.add(id, a);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (int i = 0; i < hits.size; i++) {
+            consumer.accept(hits.ids[i], DistanceKernel.Query.distanceKm(hits.terms[i]));
+        }
+    }
+
+    private void removeFromCell(long cell, long id) {
+        Set<Long> ids = cells.get(cell);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    private int latIndex(double lat) {
+        return (int) Math.floor((Math.max(-90, Math.min(90, lat)) + 90) / cellSizeDegrees);
+    }
+
+    private int lonIndex(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / cellSizeDegrees), lonCells);
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    private static final class Hits {
+        private long[] ids = new long[16];
+        private double[] terms = new double[16];
+        private int size;
+
+        void add(long id, double term) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                terms = Arrays.copyOf(terms, size * 2);
+            }
+            ids[size] = id;
+            terms[size++] = term;
+        }
+    }
+}
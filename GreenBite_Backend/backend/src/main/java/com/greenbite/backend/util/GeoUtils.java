@@ -0,0 +1,53 @@
+package com.greenbite.backend.util;
+
+public final class GeoUtils {
+
+    // Earth's radius in kilometers
+    public static final double EARTH_RADIUS = 6371;
+
+    private static final double KM_PER_DEGREE_LAT = Math.PI * EARTH_RADIUS / 180;
+
+    private GeoUtils() {
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS * c;
+    }
+
+    // Smallest lat/lon box that contains every point within radiusKm of the centre.
+    // Longitudes may fall outside [-180, 180] when the circle crosses the antimeridian.
+    public static BoundingBox boundingBox(double lat, double lon, double radiusKm) {
+        double dLat = radiusKm / KM_PER_DEGREE_LAT;
+        double minLat = Math.max(-90, lat - dLat);
+        double maxLat = Math.min(90, lat + dLat);
+
+        // Near the poles (or for huge radii) the circle covers every longitude
+        double angular = radiusKm / EARTH_RADIUS;
+        if (minLat <= -90 || maxLat >= 90 || angular >= Math.PI / 2) {
+            return new BoundingBox(minLat, maxLat, -180, 180);
+        }
+
+        double ratio = Math.sin(angular) / Math.cos(Math.toRadians(lat));
+        if (ratio >= 1) {
+            return new BoundingBox(minLat, maxLat, -180, 180);
+        }
+        double dLon = Math.toDegrees(Math.asin(ratio));
+        return new BoundingBox(minLat, maxLat, lon - dLon, lon + dLon);
+    }
+
+    public record BoundingBox(double minLat, double maxLat, double minLon, double maxLon) {
+
+        public boolean crossesAntimeridian() {
+            return minLon < -180 || maxLon > 180;
+        }
+    }
+}
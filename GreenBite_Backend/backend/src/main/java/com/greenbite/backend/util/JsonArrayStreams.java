@@ -0,0 +1,57 @@
+package com.greenbite.backend.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Writes a row stream as one JSON array, a chunk at a time, so only chunkSize rows are in memory
+public final class JsonArrayStreams {
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private JsonArrayStreams() {
+    }
+
+    public static StreamingResponseBody responseBody(ObjectMapper objectMapper, Writer writer) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                writer.write(generator);
+            }
+        };
+    }
+
+    // afterChunk runs once a chunk has been written, e.g. to detach its entities. With rows
+    // from a forward-only cursor and each written chunk detached, memory stays flat.
+    public static <E, T> long write(JsonGenerator generator, Stream<E> rows, int chunkSize,
+                                    Function<List<E>, List<T>> convert, Runnable afterChunk) throws IOException {
+        long written = 0;
+        List<E> chunk = new ArrayList<>(chunkSize);
+        generator.writeStartArray();
+        Iterator<E> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                for (T element : convert.apply(chunk)) {
+                    generator.writeObject(element);
+                }
+                generator.flush();
+                written += chunk.size();
+                chunk.clear();
+                afterChunk.run();
+            }
+        }
+        generator.writeEndArray();
+        generator.flush();
+        return written;
+    }
+}
@@ -0,0 +1,44 @@
+package com.greenbite.backend.util;
+
+import com.greenbite.backend.dto.CursorPage;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Helpers for id-keyset pagination: "WHERE id > :afterId ORDER BY id LIMIT :size + 1".
+// Each page is an index range scan from the cursor, so page N costs the same as page 1.
+public final class KeysetPages {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private KeysetPages() {
+    }
+
+    public static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    // Id of the last row of the previous page; 0 for the first page
+    public static long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        String[] parts = CursorCodec.decode(cursor, 1);
+        try {
+            return Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // rows must be fetched with a limit of pageSize + 1; the extra row only signals that more pages exist
+    public static <E, T> CursorPage<T> page(List<E> rows, int pageSize, ToLongFunction<E> idOf,
+                                            Function<List<E>, List<T>> mapper) {
+        boolean hasMore = rows.size() > pageSize;
+        List<E> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? CursorCodec.encode(idOf.applyAsLong(pageRows.get(pageSize - 1))) : null;
+        return new CursorPage<>(mapper.apply(pageRows), nextCursor);
+    }
+}
@@ -0,0 +1,23 @@
+package com.greenbite.backend.util;
+
+public class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public void filter(double[] x, double[] y, double[] z, int size, Query query, SlotConsumer consumer) {
+        double qx = query.x();
+        double qy = query.y();
+        double qz = query.z();
+        double minDot = query.minDot();
+        for (int i = 0; i < size; i++) {
+            double dot = x[i] * qx + y[i] * qy + z[i] * qz;
+            if (dot >= minDot) {
+                consumer.accept(i, 0.5 * (1 - dot));
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,150 @@
+package com.greenbite.backend.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The subscribers of one server-sent events stream, filed in groups by key, with a cap on
+// how many there are in total. Each subscriber leaves its group when it closes. Events are
+// serialized once here and offered to whichever subscribers the owner picks.
+public class SseRegistry<K> {
+
+    private final String name;
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long sendTimeoutMillis;
+    private final Executor executor;
+
+    private final Map<K, Set<SseSubscriber>> groups = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong stalled = new AtomicLong();
+
+    public SseRegistry(String name, ObjectMapper objectMapper, int queueCapacity, int maxSubscribers,
+                       long sendTimeoutMillis, Executor executor) {
+        this.name = name;
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.executor = executor;
+    }
+
+    // Daemon threads, so open streams never hold up shutdown
+    public static ExecutorService senderPool(int threads, String threadName) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseSubscriber register(K key, SseEmitter emitter, boolean paused) {
+        return register(key, emitter, paused, () -> {
+        });
+    }
+
+    // onRemoved runs once, when the subscriber leaves its group
+    public SseSubscriber register(K key, SseEmitter emitter, boolean paused, Runnable onRemoved) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many " + name + " subscribers");
+        }
+        SseSubscriber subscriber = new SseSubscriber(emitter, queueCapacity, executor, dropped, paused, closed -> {
+            if (remove(key, closed)) {
+                subscriberCount.decrementAndGet();
+                onRemoved.run();
+            }
+        });
+        // Under the map's lock, so a group emptied by a concurrent removal is never added to
+        groups.compute(key, (k, group) -> {
+            Set<SseSubscriber> target = group != null ? group : ConcurrentHashMap.<SseSubscriber>newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+        return subscriber;
+    }
+
+    // Null when nobody is subscribed under key
+    public Set<SseSubscriber> group(K key) {
+        return groups.get(key);
+    }
+
+    public int size() {
+        return subscriberCount.get();
+    }
+
+    public int groupCount() {
+        return groups.size();
+    }
+
+    public SseSubscriber.Event event(String eventName, Object body) {
+        try {
+            return new SseSubscriber.Event(Long.toString(sequence.incrementAndGet()), eventName,
+                    objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void publish(Iterable<SseSubscriber> subscribers, SseSubscriber.Event event) {
+        published.incrementAndGet();
+        for (SseSubscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    // Also cuts off subscribers whose write has been blocked too long
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Set<SseSubscriber> group : groups.values()) {
+            for (SseSubscriber subscriber : group) {
+                if (subscriber.closeIfStalled(now, sendTimeoutMillis)) {
+                    stalled.incrementAndGet();
+                } else {
+                    subscriber.heartbeat();
+                }
+            }
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("subscribers", (long) subscriberCount.get());
+        stats.put("published", published.get());
+        stats.put("dropped", dropped.get());
+        stats.put("stalled", stalled.get());
+        return stats;
+    }
+
+    public void shutdown() {
+        for (Set<SseSubscriber> group : groups.values()) {
+            group.forEach(SseSubscriber::close);
+        }
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private boolean remove(K key, SseSubscriber subscriber) {
+        boolean[] removed = new boolean[1];
+        groups.computeIfPresent(key, (k, group) -> {
+            removed[0] = group.remove(subscriber);
+            return group.isEmpty() ? null : group;
+        });
+        return removed[0];
+    }
+}
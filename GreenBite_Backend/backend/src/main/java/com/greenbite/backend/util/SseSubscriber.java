@@ -0,0 +1,177 @@
+package com.greenbite.backend.util;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// One server-sent events connection fed through a bounded queue. offer never blocks: when
+// the queue is full the oldest event is dropped and the client is later sent a "dropped"
+// event with the count, so it knows to refetch. Events are sent from the given executor,
+// one task per subscriber at a time. A send is a blocking servlet write, so a client that
+// stops reading holds a sender thread until the container's write timeout fails it; while
+// it does, every other subscriber shares the rest of the pool. closeIfStalled, run from the
+// owner's periodic sweep, closes such a subscriber so it never takes another thread.
+public class SseSubscriber {
+
+    // An event serialized once and shared by every queue it is offered to
+    public record Event(String id, String name, String json) {
+    }
+
+    private static final Event HEARTBEAT = new Event(null, null, null);
+
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final Executor executor;
+    private final AtomicLong droppedTotal;
+    private final Consumer<SseSubscriber> onClose;
+
+    private final ArrayDeque<Event> queue = new ArrayDeque<>(); // guarded by this
+    private long droppedSinceSend; // guarded by this
+    private boolean sending; // guarded by this
+    private boolean paused; // guarded by this
+    private volatile boolean closed;
+    // When the write in progress started, or 0 between writes
+    private volatile long sendStartedAt;
+
+    // A paused subscriber queues events but sends nothing until start
+    public SseSubscriber(SseEmitter emitter, int capacity, Executor executor, AtomicLong droppedTotal,
+                         boolean paused, Consumer<SseSubscriber> onClose) {
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.droppedTotal = droppedTotal;
+        this.paused = paused;
+        this.onClose = onClose;
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(error -> close());
+    }
+
+    public void offer(Event event) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= capacity) {
+                queue.pollFirst();
+                droppedSinceSend++;
+                droppedTotal.incrementAndGet();
+            }
+            queue.addLast(event);
+            if (sending || paused) {
+                return;
+            }
+            sending = true;
+        }
+        schedule();
+    }
+
+    // Sends first ahead of everything queued while paused, then the queue
+    public void start(Event first) {
+        synchronized (this) {
+            if (closed || !paused) {
+                return;
+            }
+            paused = false;
+            if (first != null) {
+                queue.addFirst(first);
+            }
+            if (queue.isEmpty()) {
+                return;
+            }
+            sending = true;
+        }
+        schedule();
+    }
+
+    // A comment line, skipped while events are flowing anyway; keeps proxies from closing
+    // idle streams and finds clients that went away
+    public void heartbeat() {
+        synchronized (this) {
+            if (closed || paused || sending || !queue.isEmpty()) {
+                return;
+            }
+            queue.addLast(HEARTBEAT);
+            sending = true;
+        }
+        schedule();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // True if a write has been blocked longer than maxSendMillis, in which case the
+    // subscriber is closed; the blocked write itself ends when the container times it out
+    public boolean closeIfStalled(long now, long maxSendMillis) {
+        long started = sendStartedAt;
+        if (started == 0 || now - started <= maxSendMillis || closed) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+        }
+        onClose.accept(this);
+        try {
+            emitter.complete();
+        } catch (RuntimeException ignored) {
+            // Already completed by the container
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RuntimeException e) {
+            close();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Event event;
+            long skipped;
+            synchronized (this) {
+                event = queue.pollFirst();
+                if (event == null || closed) {
+                    sending = false;
+                    return;
+                }
+                skipped = droppedSinceSend;
+                droppedSinceSend = 0;
+            }
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                if (skipped > 0) {
+                    emitter.send(SseEmitter.event().name("dropped").data(skipped));
+                }
+                if (event == HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                } else {
+                    SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event.name())
+                            .data(event.json(), MediaType.APPLICATION_JSON);
+                    emitter.send(event.id() != null ? builder.id(event.id()) : builder);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Client went away, or the emitter failed; either way it gets nothing more
+                close();
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.greenbite.backend.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Available quantity of one item split across stripes, so concurrent takes CAS on
+// different cache lines. A take is all-or-nothing on a single stripe; when no stripe
+// holds enough, the slow path drains every stripe under a lock and decides exactly,
+// so a take only fails when the total really is short.
+public final class StripedStockCounter {
+
+    // Ints per stripe; keeps neighbouring stripes on separate 64-byte cache lines
+    private static final int PADDING = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+    private final Object slowPath = new Object();
+
+    public StripedStockCounter(int quantity) {
+        this(quantity, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedStockCounter(int quantity, int stripes) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicIntegerArray(this.stripes * PADDING);
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * PADDING, quantity / this.stripes + (i < quantity % this.stripes ? 1 : 0));
+        }
+    }
+
+    public boolean tryTake(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            int current = cells.get(index);
+            while (current >= quantity) {
+                if (cells.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+                current = cells.get(index);
+            }
+        }
+        return takeSlow(quantity, start * PADDING);
+    }
+
+    public void release(int quantity) {
+        if (quantity > 0) {
+            cells.getAndAdd(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+        }
+    }
+
+    // A moment-in-time sum; exact only when no take is in progress
+    public int available() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    private boolean takeSlow(int quantity, int home) {
+        synchronized (slowPath) {
+            int total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += cells.getAndSet(i * PADDING, 0);
+            }
+            boolean taken = total >= quantity;
+            cells.getAndAdd(home, taken ? total - quantity : total);
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.greenbite.backend.util;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over three weighted text fields (title, category, body).
+// Terms live in a sorted dictionary so a prefix is one range lookup; typos are handled by
+// looking up every edit-distance-1 variant of a query token. Every query token must match
+// (AND); candidates come from the rarest token's postings, read best field tier first, and
+// are scored against the document's own term list, keeping the best K in a min-heap.
+public class TextSearchIndex {
+
+    public record Hit(long id, String title, double score) {
+    }
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int BODY_WEIGHT = 1;
+    private static final int MAX_WEIGHT = TITLE_WEIGHT;
+
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.75;
+    private static final double FUZZY = 0.5;
+
+    private static final int MAX_QUERY_TOKENS = 8;
+    private static final int MAX_EXPANSIONS_PER_TOKEN = 64;
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    // Lower score first; among equal scores the higher id sorts as worse
+    private static final Comparator<Hit> WORST_FIRST =
+            Comparator.comparingDouble(Hit::score).thenComparing(Hit::id, Comparator.reverseOrder());
+
+    private final int maxCandidates;
+
+    private final TreeMap<String, Integer> termIds = new TreeMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+
+    // Per document slot; ids[doc] == -1 marks a deleted slot
+    private long[] ids = new long[1024];
+    private String[] titles = new String[1024];
+    private int[][] docTerms = new int[1024][];
+    private byte[][] docWeights = new byte[1024][];
+    private int docCount;
+    private int deadDocs;
+    private final Map<Long, Integer> docById = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TextSearchIndex(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    public void put(long id, String title, String category, String body) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        addField(weights, title, TITLE_WEIGHT);
+        addField(weights, category, CATEGORY_WEIGHT);
+        addField(weights, body, BODY_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (weights.isEmpty()) {
+                return;
+            }
+            int doc = docCount++;
+            ensureDocCapacity(docCount);
+            int[] terms = new int[weights.size()];
+            byte[] termWeights = new byte[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                int termId = termIds.computeIfAbsent(entry.getKey(), key -> {
+                    postings.add(new Postings());
+                    return postings.size() - 1;
+                });
+                postings.get(termId).add(doc, entry.getValue());
+                terms[i] = termId;
+                termWeights[i++] = entry.getValue().byteValue();
+            }
+            ids[doc] = id;
+            titles[doc] = title;
+            docTerms[doc] = terms;
+            docWeights[doc] = termWeights;
+            docById.put(id, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            termIds.clear();
+            postings.clear();
+            docById.clear();
+            ids = new long[1024];
+            titles = new String[1024];
+            docTerms = new int[1024][];
+            docWeights = new byte[1024][];
+            docCount = 0;
+            deadDocs = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best `limit` documents matching every token; with prefixLastToken the final token
+    // also matches any term it is a prefix of, for search-as-you-type
+    public List<Hit> search(String query, int limit, boolean prefixLastToken) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (tokens.size() > MAX_QUERY_TOKENS) {
+            tokens = tokens.subList(tokens.size() - MAX_QUERY_TOKENS, tokens.size());
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = docById.size();
+            List<Expansion> expansions = new ArrayList<>(tokens.size());
+            int rarest = -1;
+            long rarestFrequency = Long.MAX_VALUE;
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean prefix = prefixLastToken && i == tokens.size() - 1;
+                Map<Integer, Double> matches = expand(tokens.get(i), prefix, liveDocs);
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+                Expansion expansion = new Expansion(matches);
+                long frequency = 0;
+                for (int termId : expansion.byScore) {
+                    frequency += postings.get(termId).size();
+                }
+                if (frequency < rarestFrequency) {
+                    rarestFrequency = frequency;
+                    rarest = i;
+                }
+                expansions.add(expansion);
+            }
+
+            // The most any non-driving token can add to a document's score
+            Expansion driver = expansions.get(rarest);
+            double othersMax = 0;
+            for (int i = 0; i < expansions.size(); i++) {
+                if (i != rarest) {
+                    othersMax += MAX_WEIGHT * expansions.get(i).maxScore;
+                }
+            }
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+            scanDriver(driver, othersMax, expansions, best, limit);
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(WORST_FIRST.reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Walks the driving token's postings best-first: highest field weight tier, then highest
+    // scoring term. Stops once nothing left can beat the current top K. The visited set only
+    // grows with the candidates scanned, and is dropped with the query.
+    private void scanDriver(Expansion driver, double othersMax, List<Expansion> expansions,
+                            PriorityQueue<Hit> best, int limit) {
+        RoaringBitmap visited = new RoaringBitmap();
+        int scanned = 0;
+        scan:
+        for (int weight = MAX_WEIGHT; weight >= 1; weight--) {
+            for (int t = 0; t < driver.byScore.length; t++) {
+                double bound = Math.max(weight * driver.byScoreScores[t], (weight - 1) * driver.maxScore) + othersMax;
+                if (best.size() == limit && best.peek().score() >= bound) {
+                    break scan;
+                }
+                Postings termPostings = postings.get(driver.byScore[t]);
+                int[] docs = termPostings.docs[weight - 1];
+                int size = termPostings.sizes[weight - 1];
+                for (int p = 0; p < size; p++) {
+                    int doc = docs[p];
+                    if (ids[doc] < 0 || !visited.checkedAdd(doc)) {
+                        continue;
+                    }
+                    if (++scanned > maxCandidates) {
+                        break scan;
+                    }
+                    double score = score(docTerms[doc], docWeights[doc], expansions);
+                    if (score > 0 && (best.size() < limit || score > best.peek().score())) {
+                        if (best.size() == limit) {
+                            best.poll();
+                        }
+                        best.add(new Hit(ids[doc], titles[doc], score));
+                        if (best.size() == limit && best.peek().score() >= bound) {
+                            break scan;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Sum over query tokens of the best matching term in the document; 0 if any token misses.
+    // A token expands to at most MAX_EXPANSIONS_PER_TOKEN terms, so the lookup is a short
+    // binary search over its sorted term ids.
+    private static double score(int[] terms, byte[] weights, List<Expansion> expansions) {
+        double total = 0;
+        for (Expansion expansion : expansions) {
+            double best = 0;
+            for (int i = 0; i < terms.length; i++) {
+                int at = Arrays.binarySearch(expansion.termIds, terms[i]);
+                if (at >= 0) {
+                    best = Math.max(best, expansion.scores[at] * weights[i]);
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    // Dictionary terms a query token can stand for, each with match quality x idf.
+    // Typo variants are only tried when the token matches nothing as typed.
+    private Map<Integer, Double> expand(String token, boolean prefix, int liveDocs) {
+        Map<Integer, Double> matches = new HashMap<>();
+        Integer exact = termIds.get(token);
+        if (exact != null && postings.get(exact).live > 0) {
+            matches.put(exact, EXACT * idf(exact, liveDocs));
+        }
+        if (prefix) {
+            addPrefixMatches(matches, token, PREFIX, liveDocs);
+        }
+        if (matches.isEmpty() && token.length() >= MIN_FUZZY_LENGTH) {
+            for (String variant : editDistanceOneVariants(token)) {
+                if (prefix) {
+                    addPrefixMatches(matches, variant, FUZZY, liveDocs);
+                } else {
+                    Integer termId = termIds.get(variant);
+                    if (termId != null && postings.get(termId).live > 0) {
+                        matches.putIfAbsent(termId, FUZZY * idf(termId, liveDocs));
+                    }
+                }
+                if (matches.size() >= MAX_EXPANSIONS_PER_TOKEN) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void addPrefixMatches(Map<Integer, Double> matches, String prefix, double quality, int liveDocs) {
+        NavigableMap<String, Integer> range = termIds.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        for (Integer termId : range.values()) {
+            if (matches.size() >= MAX_EXPANSIONS_PER_TOKEN) {
+                return;
+            }
+            if (postings.get(termId).live > 0) {
+                matches.putIfAbsent(termId, quality * idf(termId, liveDocs));
+            }
+        }
+    }
+
+    private double idf(int termId, int liveDocs) {
+        return Math.log(1 + (double) liveDocs / Math.max(1, postings.get(termId).live));
+    }
+
+    private static List<String> editDistanceOneVariants(String token) {
+        List<String> variants = new ArrayList<>(token.length() * (2 * ALPHABET.length + 2) + ALPHABET.length);
+        char[] chars = token.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            // Deletion
+            variants.add(token.substring(0, i) + token.substring(i + 1));
+            // Transposition
+            if (i + 1 < chars.length && chars[i] != chars[i + 1]) {
+                char[] swapped = chars.clone();
+                swapped[i] = chars[i + 1];
+                swapped[i + 1] = chars[i];
+                variants.add(new String(swapped));
+            }
+            // Substitution
+            for (char c : ALPHABET) {
+                if (c != chars[i]) {
+                    char[] substituted = chars.clone();
+                    substituted[i] = c;
+                    variants.add(new String(substituted));
+                }
+            }
+        }
+        // Insertion
+        for (int i = 0; i <= chars.length; i++) {
+            for (char c : ALPHABET) {
+                variants.add(token.substring(0, i) + c + token.substring(i));
+            }
+        }
+        return variants;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Math::max);
+        }
+    }
+
+    private void removeLocked(long id) {
+        Integer doc = docById.remove(id);
+        if (doc == null) {
+            return;
+        }
+        // Postings keep the dead slot until the next compaction
+        for (int termId : docTerms[doc]) {
+            postings.get(termId).live--;
+        }
+        ids[doc] = -1;
+        titles[doc] = null;
+        docTerms[doc] = null;
+        docWeights[doc] = null;
+        deadDocs++;
+        if (deadDocs > 1024 && deadDocs > docById.size()) {
+            compact();
+        }
+    }
+
+    // Renumbers live documents densely and rebuilds postings without dead slots
+    private void compact() {
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (ids[doc] < 0) {
+                continue;
+            }
+            ids[live] = ids[doc];
+            titles[live] = titles[doc];
+            docTerms[live] = docTerms[doc];
+            docWeights[live] = docWeights[doc];
+            docById.put(ids[live], live);
+            live++;
+        }
+        Arrays.fill(titles, live, docCount, null);
+        Arrays.fill(docTerms, live, docCount, null);
+        Arrays.fill(docWeights, live, docCount, null);
+        docCount = live;
+        deadDocs = 0;
+
+        for (Postings termPostings : postings) {
+            termPostings.reset();
+        }
+        for (int doc = 0; doc < docCount; doc++) {
+            for (int i = 0; i < docTerms[doc].length; i++) {
+                postings.get(docTerms[doc][i]).add(doc, docWeights[doc][i]);
+            }
+        }
+        // Terms no longer used by any document stay in the dictionary with empty postings
+    }
+
+    private void ensureDocCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newLength = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, newLength);
+            titles = Arrays.copyOf(titles, newLength);
+            docTerms = Arrays.copyOf(docTerms, newLength);
+            docWeights = Arrays.copyOf(docWeights, newLength);
+        }
+    }
+
+    // Documents containing a term, split by field weight so the best tier can be read first
+    private static final class Postings {
+        private final int[][] docs = new int[MAX_WEIGHT][];
+        private final int[] sizes = new int[MAX_WEIGHT];
+        private int live;
+
+        void add(int doc, int weight) {
+            int tier = weight - 1;
+            if (docs[tier] == null) {
+                docs[tier] = new int[4];
+            } else if (sizes[tier] == docs[tier].length) {
+                docs[tier] = Arrays.copyOf(docs[tier], sizes[tier] * 2);
+            }
+            docs[tier][sizes[tier]++] = doc;
+            live++;
+        }
+
+        int size() {
+            int size = 0;
+            for (int tierSize : sizes) {
+                size += tierSize;
+            }
+            return size;
+        }
+
+        void reset() {
+            Arrays.fill(sizes, 0);
+            live = 0;
+        }
+    }
+
+    // The dictionary terms one query token matched: sorted by term id for lookups while
+    // scoring, and by score for best-first scanning
+    private static final class Expansion {
+        private final int[] termIds;
+        private final double[] scores;
+        private final int[] byScore;
+        private final double[] byScoreScores;
+        private final double maxScore;
+
+        Expansion(Map<Integer, Double> matches) {
+            List<Map.Entry<Integer, Double>> entries = new ArrayList<>(matches.entrySet());
+            entries.sort(Map.Entry.comparingByKey());
+            termIds = new int[entries.size()];
+            scores = new double[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                termIds[i] = entries.get(i).getKey();
+                scores[i] = entries.get(i).getValue();
+            }
+            entries.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+            byScore = new int[entries.size()];
+            byScoreScores = new double[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                byScore[i] = entries.get(i).getKey();
+                byScoreScores[i] = entries.get(i).getValue();
+            }
+            maxScore = byScoreScores[0];
+        }
+    }
+}
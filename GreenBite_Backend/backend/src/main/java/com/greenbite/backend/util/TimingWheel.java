@@ -0,0 +1,278 @@
+package com.greenbite.backend.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// Hierarchical timing wheel keyed by a long id, at most one timer per id. Four levels of
+// 64 slots cover 64^4 ticks; later deadlines are parked in the top level and re-placed
+// as the wheel turns. Timers live in parallel primitive arrays linked into slot lists,
+// about 26 bytes each plus ~24 bytes in the id index. Not thread-safe.
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+    private final int[] heads = new int[SLOTS * LEVELS];
+    private final int[] levelSizes = new int[LEVELS];
+    private final IdIndex index = new IdIndex();
+
+    private long[] ids = new long[64];
+    private long[] deadlines = new long[64]; // in ticks
+    private int[] next = new int[64];
+    private int[] prev = new int[64];
+    private short[] buckets = new short[64];
+    private int capacity;
+    private int freeHead = NONE;
+    private int size;
+
+    private long currentTick;
+    private boolean advancing;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        Arrays.fill(heads, NONE);
+    }
+
+    // Adds or moves the timer of id; a deadline already past fires on the next advance
+    public void schedule(long id, long deadlineMillis) {
+        int timer = index.get(id);
+        if (timer == NONE) {
+            timer = allocate();
+            ids[timer] = id;
+            index.put(id, timer);
+            size++;
+        } else {
+            unlink(timer);
+        }
+        deadlines[timer] = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        place(timer);
+    }
+
+    public boolean cancel(long id) {
+        int timer = index.remove(id);
+        if (timer == NONE) {
+            return false;
+        }
+        unlink(timer);
+        release(timer);
+        size--;
+        return true;
+    }
+
+    public boolean contains(long id) {
+        return index.get(id) != NONE;
+    }
+
+    // Turns the wheel up to now, handing each due id to expired once; timers are removed
+    // before the callback, which may schedule the id again
+    public void advance(long nowMillis, LongConsumer expired) {
+        long target = nowMillis / tickMillis;
+        advancing = true;
+        try {
+            while (currentTick < target) {
+                currentTick++;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+                    }
+                }
+                fire((int) (currentTick & (SLOTS - 1)), expired);
+            }
+        } finally {
+            advancing = false;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] levelSizes() {
+        return levelSizes.clone();
+    }
+
+    public long currentMillis() {
+        return currentTick * tickMillis;
+    }
+
+    // Takes one timer off the slot at a time, so the callback may schedule or cancel any id,
+    // including ones still in this slot; a deadline it sets in the past lands back here
+    private void fire(int slot, LongConsumer expired) {
+        int timer;
+        while ((timer = heads[slot]) != NONE) {
+            unlink(timer);
+            if (deadlines[timer] > currentTick) {
+                // Parked beyond the wheel's span and not due yet
+                place(timer);
+            } else {
+                long id = ids[timer];
+                index.remove(id);
+                release(timer);
+                size--;
+                expired.accept(id);
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        int bucket = level * SLOTS + slot;
+        int timer = heads[bucket];
+        heads[bucket] = NONE;
+        while (timer != NONE) {
+            int following = next[timer];
+            levelSizes[level]--;
+            place(timer);
+            timer = following;
+        }
+    }
+
+    private void place(int timer) {
+        long deadline = deadlines[timer];
+        long delta = deadline - currentTick;
+        int bucket;
+        if (delta <= 0) {
+            // Fire in the slot being processed, or on the next tick when called from outside
+            bucket = (int) ((advancing ? currentTick : currentTick + 1) & (SLOTS - 1));
+        } else {
+            if (delta >= MAX_SPAN) {
+                deadline = currentTick + MAX_SPAN - 1;
+                delta = MAX_SPAN - 1;
+            }
+            int level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+            bucket = level * SLOTS + (int) ((deadline >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        }
+        buckets[timer] = (short) bucket;
+        levelSizes[bucket / SLOTS]++;
+        prev[timer] = NONE;
+        next[timer] = heads[bucket];
+        if (heads[bucket] != NONE) {
+            prev[heads[bucket]] = timer;
+        }
+        heads[bucket] = timer;
+    }
+
+    private void unlink(int timer) {
+        int bucket = buckets[timer];
+        if (prev[timer] != NONE) {
+            next[prev[timer]] = next[timer];
+        } else {
+            heads[bucket] = next[timer];
+        }
+        if (next[timer] != NONE) {
+            prev[next[timer]] = prev[timer];
+        }
+        levelSizes[bucket / SLOTS]--;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int timer = freeHead;
+            freeHead = next[timer];
+            return timer;
+        }
+        if (capacity == ids.length) {
+            int grown = ids.length * 2;
+            ids = Arrays.copyOf(ids, grown);
+            deadlines = Arrays.copyOf(deadlines, grown);
+            next = Arrays.copyOf(next, grown);
+            prev = Arrays.copyOf(prev, grown);
+            buckets = Arrays.copyOf(buckets, grown);
+        }
+        return capacity++;
+    }
+
+    private void release(int timer) {
+        next[timer] = freeHead;
+        freeHead = timer;
+    }
+
+    // Open-addressing id -> timer map with linear probing and backward-shift deletion
+    private static final class IdIndex {
+        private long[] keys = new long[128];
+        private int[] values = new int[128];
+        private boolean[] used = new boolean[128];
+        private int count;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return NONE;
+        }
+
+        void put(long key, int value) {
+            if ((count + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i]) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+            count++;
+        }
+
+        int remove(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i] && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (!used[i]) {
+                return NONE;
+            }
+            int removed = values[i];
+            count--;
+            // Shift later entries of the probe run back into the gap
+            int gap = i;
+            for (int j = (gap + 1) & mask; used[j]; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            used[gap] = false;
+            return removed;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
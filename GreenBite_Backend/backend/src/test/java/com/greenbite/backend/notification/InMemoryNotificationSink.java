@@ -0,0 +1,25 @@
+package com.greenbite.backend.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps every batch it receives, for assertions
+public class InMemoryNotificationSink implements NotificationSink {
+
+    private final List<List<NearbyListingNotification>> batches = new ArrayList<>();
+
+    @Override
+    public synchronized void send(List<NearbyListingNotification> batch) {
+        batches.add(List.copyOf(batch));
+    }
+
+    public synchronized List<List<NearbyListingNotification>> batches() {
+        return List.copyOf(batches);
+    }
+
+    public synchronized List<NearbyListingNotification> notifications() {
+        List<NearbyListingNotification> notifications = new ArrayList<>();
+        batches.forEach(notifications::addAll);
+        return notifications;
+    }
+}
@@ -0,0 +1,57 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.event.FoodShopChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CatalogVersionsTest {
+
+    @Test
+    void itemChangesMoveTheListingsTheItemLeavesAndJoins() {
+        CatalogVersions versions = new CatalogVersions();
+        String shop1 = versions.shopItemsETag(1L);
+        String shop2 = versions.shopItemsETag(2L);
+        String bakery = versions.categoryETag("Bakery");
+        String dairy = versions.categoryETag("Dairy");
+        String shops = versions.allShopsETag();
+
+        // Moved from shop 1's bakery to dairy, same shop
+        versions.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.UPDATED,
+                item(1L, "Bakery"), item(1L, "Dairy")));
+
+        assertNotEquals(shop1, versions.shopItemsETag(1L));
+        assertEquals(shop2, versions.shopItemsETag(2L));
+        assertNotEquals(bakery, versions.categoryETag("Bakery"));
+        assertNotEquals(dairy, versions.categoryETag("Dairy"));
+        assertEquals(versions.categoryETag("Dairy"), versions.categoryETag(" dairy "));
+        assertEquals(shops, versions.allShopsETag());
+    }
+
+    @Test
+    void shopChangesMoveEveryListingThatShowsShopDetails() {
+        CatalogVersions versions = new CatalogVersions();
+        String shop1 = versions.shopItemsETag(1L);
+        String bakery = versions.categoryETag("Bakery");
+        String shops = versions.allShopsETag();
+
+        versions.onFoodShopChanged(new FoodShopChangedEvent(ChangeType.UPDATED, 7L, 1.0, 2.0, 1.0, 2.0));
+
+        assertNotEquals(shop1, versions.shopItemsETag(1L));
+        assertNotEquals(bakery, versions.categoryETag("Bakery"));
+        assertNotEquals(shops, versions.allShopsETag());
+    }
+
+    @Test
+    void tagsFromAnotherProcessNeverMatch() {
+        assertNotEquals(new CatalogVersions().allShopsETag(), new CatalogVersions().allShopsETag());
+    }
+
+    private static FoodItemSnapshot item(Long shopId, String category) {
+        return new FoodItemSnapshot(10L, "Bread", null, 2.0, 5, "", shopId, category);
+    }
+}
@@ -0,0 +1,117 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.repository.FoodItemRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class CategoryFacetCounterTest {
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final HotStockService hotStockService = mock(HotStockService.class);
+
+    @Test
+    void tracksInStockItemsPerCategoryAndShop() {
+        FoodItem bread = save("Bread", 5, 1L, "Bakery");
+        save("Bun", 2, 1L, "Bakery");
+        save("Kottu", 3, 2L, "Meals");
+        save("Cake", 0, 2L, "Bakery");
+
+        CategoryFacetCounter counter = new CategoryFacetCounter(foodItemRepository, hotStockService);
+        counter.rebuild();
+
+        assertEquals(Map.of("Bakery", 2L, "Meals", 1L), counter.categoryCounts());
+        assertEquals(Map.of("Meals", 1L), counter.categoryCounts(List.of(2L)));
+
+        // An order sells out the bread
+        FoodItemSnapshot before = FoodItemSnapshot.of(bread);
+        bread.setQuantity(0);
+        counter.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.STOCK_CHANGED, before, FoodItemSnapshot.of(bread)));
+        // Replaying the same event must not count twice
+        counter.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.STOCK_CHANGED, before, FoodItemSnapshot.of(bread)));
+
+        assertEquals(Map.of("Bakery", 1L, "Meals", 1L), counter.categoryCounts());
+        assertEquals(Map.of("Bakery", 1L), counter.categoryCounts(List.of(1L)));
+    }
+
+    @Test
+    void reconciliationRepairsCountersAfterOutOfBandWrites() {
+        save("Bread", 5, 1L, "Bakery");
+        FoodItem kottu = save("Kottu", 3, 2L, "Meals");
+
+        CategoryFacetCounter counter = new CategoryFacetCounter(foodItemRepository, hotStockService);
+        counter.rebuild();
+        counter.reconcile();
+        assertEquals(0, counter.reconciliationMismatches());
+
+        // Changed without going through FoodItemService, so no event is published
+        kottu.setCategory("Bakery");
+        foodItemRepository.saveAndFlush(kottu);
+        counter.reconcile();
+
+        assertEquals(1, counter.reconciliationMismatches());
+        assertEquals(Map.of("Bakery", 2L), counter.categoryCounts());
+    }
+
+    @Test
+    void categoriesDifferingInCaseOrSpacesAreOneFacet() {
+        save("Bread", 5, 1L, "Bakery");
+        FoodItem bun = save("Bun", 2, 1L, "bakery ");
+        save("Cake", 1, 2L, " BAKERY");
+
+        CategoryFacetCounter counter = new CategoryFacetCounter(foodItemRepository, hotStockService);
+        counter.rebuild();
+        assertEquals(Map.of("Bakery", 3L), counter.categoryCounts());
+        assertEquals(Map.of("Bakery", 2L), counter.categoryCounts(List.of(1L)));
+
+        FoodItemSnapshot before = FoodItemSnapshot.of(bun);
+        bun.setQuantity(0);
+        counter.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.STOCK_CHANGED, before, FoodItemSnapshot.of(bun)));
+        foodItemRepository.saveAndFlush(bun);
+        counter.reconcile();
+
+        assertEquals(0, counter.reconciliationMismatches());
+        assertEquals(Map.of("Bakery", 2L), counter.categoryCounts());
+    }
+
+    @Test
+    void reconciliationWaitsWhileHotStockIsUnsettled() {
+        FoodItem bread = save("Bread", 1, 1L, "Bakery");
+        CategoryFacetCounter counter = new CategoryFacetCounter(foodItemRepository, hotStockService);
+        counter.rebuild();
+
+        // A hot order took the last bread; food_items catches up at the next flush
+        FoodItemSnapshot before = FoodItemSnapshot.of(bread);
+        bread.setQuantity(0);
+        counter.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.STOCK_CHANGED, before, FoodItemSnapshot.of(bread)));
+        when(hotStockService.hasUnsettledStock()).thenReturn(true);
+        counter.reconcile();
+
+        assertEquals(0, counter.reconciliationMismatches());
+        assertEquals(Map.of(), counter.categoryCounts());
+    }
+
+    private FoodItem save(String name, int quantity, Long shopId, String category) {
+        FoodItem item = foodItemRepository.save(new FoodItem(null, name, "desc", 100.0, quantity, null, "", shopId, category, null, null, null));
+        entityManager.flush();
+        return item;
+    }
+}
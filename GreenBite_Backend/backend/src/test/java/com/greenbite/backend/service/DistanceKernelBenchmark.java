@@ -0,0 +1,71 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.util.CoordinateStore;
+import com.greenbite.backend.util.DistanceKernel;
+import com.greenbite.backend.util.GeoUtils;
+import com.greenbite.backend.util.ScalarDistanceKernel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+// Compares a full radius filter over 1M shops: the old per-object stream with haversine
+// and the scalar structure-of-arrays kernel.
+// Run with: java -cp target/classes:target/test-classes com.greenbite.backend.service.DistanceKernelBenchmark
+public class DistanceKernelBenchmark {
+
+    private static final int SHOPS = 1_000_000;
+    private static final int ITERATIONS = 50;
+    private static final double RADIUS_KM = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<FoodShop> shops = new ArrayList<>(SHOPS);
+        CoordinateStore store = new CoordinateStore();
+        for (long id = 1; id <= SHOPS; id++) {
+            double lat = 5.9 + random.nextDouble() * 4;
+            double lon = 79.6 + random.nextDouble() * 2.3;
+            FoodShop shop = new FoodShop();
+            shop.setId(id);
+            shop.setLatitude(lat);
+            shop.setLongitude(lon);
+            shops.add(shop);
+            store.put(id, lat, lon);
+        }
+        double lat = 6.9271;
+        double lon = 79.8612;
+
+        long expected = measure("object stream", () -> shops.stream()
+                .filter(shop -> GeoUtils.distanceKm(lat, lon, shop.getLatitude(), shop.getLongitude()) <= RADIUS_KM)
+                .collect(Collectors.toList())
+                .size());
+
+        DistanceKernel kernel = new ScalarDistanceKernel();
+        DistanceKernel.Query query = DistanceKernel.Query.of(lat, lon, RADIUS_KM);
+        long hits = measure(kernel.name() + " kernel", () -> {
+            int[] count = {0};
+            store.filter(kernel, query, (slot, a) -> count[0]++);
+            return count[0];
+        });
+        if (Math.abs(hits - expected) > 1) {
+            throw new IllegalStateException(kernel.name() + " found " + hits + " shops, expected " + expected);
+        }
+    }
+
+    private static long measure(String name, LongSupplier run) {
+        long result = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            result = run.getAsLong();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            result = run.getAsLong();
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+        System.out.printf("%-20s %,10.1f us per 1M-shop filter (%d hits)%n", name, micros, result);
+        return result;
+    }
+}
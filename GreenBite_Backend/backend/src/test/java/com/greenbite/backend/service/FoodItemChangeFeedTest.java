@@ -0,0 +1,105 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.util.GeoHash;
+import com.greenbite.backend.util.QueuedExecutor;
+import com.greenbite.backend.util.RecordingEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FoodItemChangeFeedTest {
+
+    private final ShopSummaryCache shopSummaryCache = mock(ShopSummaryCache.class);
+    private final QueuedExecutor executor = new QueuedExecutor();
+
+    @Test
+    void deliversChangesToShopTileAndCatchAllSubscribers() {
+        when(shopSummaryCache.get(1L)).thenReturn(new ShopSummaryCache.ShopSummary(1L, "Bakery", null, 6.9271, 79.8612));
+        when(shopSummaryCache.get(2L)).thenReturn(new ShopSummaryCache.ShopSummary(2L, "Deli", null, 7.2906, 80.6337));
+        FoodItemChangeFeed feed = feed(16, 100);
+        RecordingEmitter shop1 = subscribe(feed, 1L, null);
+        RecordingEmitter tile = subscribe(feed, null, GeoHash.encode(6.9271, 79.8612, 4));
+        RecordingEmitter all = subscribe(feed, null, null);
+
+        feed.onFoodItemChanged(stockChange(10L, 1L, 5, 4));
+        feed.onFoodItemChanged(stockChange(20L, 2L, 3, 2));
+        feed.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.IMPORTED, null, item(30L, 1L, 9)));
+        executor.drain();
+
+        assertEquals(List.of("stock_changed:10", "created:30"), events(shop1));
+        assertEquals(List.of("stock_changed:10", "created:30"), events(tile));
+        assertEquals(List.of("stock_changed:10", "stock_changed:20", "created:30"), events(all));
+    }
+
+    @Test
+    void fullQueueDropsItsOldestEventsAndTellsTheClient() {
+        FoodItemChangeFeed feed = feed(3, 100);
+        RecordingEmitter slow = subscribe(feed, 1L, null);
+        executor.drain();
+
+        for (int quantity = 9; quantity > 4; quantity--) {
+            feed.onFoodItemChanged(stockChange(10L, 1L, quantity + 1, quantity));
+        }
+        executor.drain();
+
+        assertEquals(List.of("dropped:2", "stock_changed:10", "stock_changed:10", "stock_changed:10"), events(slow));
+        assertTrue(slow.data.get(3).contains("\"quantity\":5"));
+        assertEquals(2L, feed.stats().get("dropped"));
+    }
+
+    @Test
+    void rejectsBadFiltersAndUnsubscribesBrokenTileSubscribers() {
+        FoodItemChangeFeed feed = feed(16, 100);
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(new RecordingEmitter(), 1L, "tc"));
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(new RecordingEmitter(), null, "a!"));
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(new RecordingEmitter(), null, "tc1234567"));
+
+        when(shopSummaryCache.get(1L)).thenReturn(new ShopSummaryCache.ShopSummary(1L, "Bakery", null, 6.9271, 79.8612));
+        RecordingEmitter tile = subscribe(feed, null, GeoHash.encode(6.9271, 79.8612, 2).toUpperCase());
+        executor.drain();
+        tile.failing = true;
+        feed.onFoodItemChanged(stockChange(10L, 1L, 5, 4));
+        executor.drain();
+
+        assertEquals(0L, feed.stats().get("subscribers"));
+    }
+
+    private FoodItemChangeFeed feed(int queueCapacity, int maxSubscribers) {
+        return new FoodItemChangeFeed(shopSummaryCache, new ObjectMapper(), queueCapacity, maxSubscribers, 0, 0, executor);
+    }
+
+    private RecordingEmitter subscribe(FoodItemChangeFeed feed, Long shopId, String tile) {
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, shopId, tile);
+        return emitter;
+    }
+
+    private static FoodItemChangedEvent stockChange(Long itemId, Long shopId, int before, int after) {
+        return new FoodItemChangedEvent(ChangeType.STOCK_CHANGED, item(itemId, shopId, before), item(itemId, shopId, after));
+    }
+
+    private static FoodItemSnapshot item(Long id, Long shopId, int quantity) {
+        return new FoodItemSnapshot(id, "Bread", null, 2.0, quantity, "", shopId, "Bakery");
+    }
+
+    // name:itemId per event, or name:data for the ones without an item
+    private static List<String> events(RecordingEmitter emitter) {
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < emitter.names.size(); i++) {
+            String body = emitter.data.get(i);
+            events.add(emitter.names.get(i) + ":" + (body.startsWith("{") ? body.replaceAll(".*\"itemId\":(\\d+).*", "$1") : body));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,120 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.repository.FoodItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs outside the test transaction; the scheduler commits its own batches
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FoodItemExpirySchedulerTest {
+
+    private static final long TICK_MS = 10;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<FoodItemChangedEvent> events = new ArrayList<>();
+    private HotStockService hotStockService;
+    private FoodItemExpiryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        hotStockService = new HotStockService(jdbcTemplate, transactionManager, new ObjectMapper(), new CatalogVersions());
+        scheduler = new FoodItemExpiryScheduler(foodItemRepository, jdbcTemplate, transactionManager, hotStockService,
+                event -> events.add((FoodItemChangedEvent) event), TICK_MS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        foodItemRepository.deleteAll();
+    }
+
+    @Test
+    void rebuildsFromTheTableAndAppliesDueMarkdownsAndExpiries() throws Exception {
+        LocalDateTime past = LocalDateTime.now().minusMinutes(5);
+        LocalDateTime later = LocalDateTime.now().plusHours(3);
+        FoodItem markdown = save("Bread", 5, past, 60.0, later);
+        FoodItem expiry = save("Cake", 2, null, null, past);
+        FoodItem both = save("Bun", 4, past, 30.0, past);
+        FoodItem untouched = save("Roll", 3, later, 20.0, later);
+        save("Sold out", 0, null, null, past);
+
+        scheduler.rebuild();
+        assertEquals(4L, scheduler.stats().get("pendingTimers"));
+        tickPastDeadlines();
+
+        FoodItem reloaded = foodItemRepository.findById(markdown.getId()).orElseThrow();
+        assertEquals(60.0, reloaded.getPrice());
+        assertEquals(5, reloaded.getQuantity());
+        assertEquals(null, reloaded.getMarkdownAt());
+        assertEquals(0, foodItemRepository.findById(expiry.getId()).orElseThrow().getQuantity());
+        FoodItem reloadedBoth = foodItemRepository.findById(both.getId()).orElseThrow();
+        assertEquals(30.0, reloadedBoth.getPrice());
+        assertEquals(0, reloadedBoth.getQuantity());
+        assertEquals(100.0, foodItemRepository.findById(untouched.getId()).orElseThrow().getPrice());
+
+        // The marked-down bread still expires later; the roll is still waiting
+        assertEquals(2L, scheduler.stats().get("pendingTimers"));
+        assertEquals(2L, scheduler.stats().get("markedDown"));
+        assertEquals(2L, scheduler.stats().get("expired"));
+        assertEquals(List.of(ChangeType.UPDATED, ChangeType.STOCK_CHANGED, ChangeType.STOCK_CHANGED),
+                events.stream().map(FoodItemChangedEvent::type).toList());
+    }
+
+    @Test
+    void writesFollowTheTimerAndExpiryWritesBackHotStock() throws Exception {
+        FoodItem bread = save("Bread", 5, null, null, LocalDateTime.now().plusHours(1));
+        scheduler.schedule(bread);
+        hotStockService.markHot(bread.getId());
+
+        // The shop brings the expiry forward
+        bread.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        bread = foodItemRepository.save(bread);
+        scheduler.schedule(bread);
+        tickPastDeadlines();
+
+        assertEquals(0, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertEquals(false, hotStockService.isHot(bread.getId()));
+
+        FoodItem cake = save("Cake", 5, null, null, LocalDateTime.now().minusSeconds(1));
+        scheduler.schedule(cake);
+        scheduler.cancel(cake.getId());
+        tickPastDeadlines();
+        assertEquals(5, foodItemRepository.findById(cake.getId()).orElseThrow().getQuantity());
+    }
+
+    private void tickPastDeadlines() throws InterruptedException {
+        Thread.sleep(3 * TICK_MS);
+        scheduler.tick();
+    }
+
+    private FoodItem save(String name, int quantity, LocalDateTime markdownAt, Double markdownPrice,
+                          LocalDateTime expiresAt) {
+        return foodItemRepository.save(new FoodItem(null, name, null, 100.0, quantity, null, "", 1L, "Bakery",
+                expiresAt, markdownAt, markdownPrice));
+    }
+}
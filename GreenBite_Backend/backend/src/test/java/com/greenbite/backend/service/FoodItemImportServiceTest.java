@@ -0,0 +1,150 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.ImportReportDTO;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.FoodShopRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class FoodItemImportServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private FoodShopRepository foodShopRepository;
+
+    private final List<FoodItemChangedEvent> events = new ArrayList<>();
+    private FoodItemImportService importService;
+    private Long shopId;
+
+    @BeforeEach
+    void setUp() {
+        importService = new FoodItemImportService(jdbcTemplate, foodShopRepository, new ObjectMapper(),
+                event -> events.add((FoodItemChangedEvent) event));
+        shopId = foodShopRepository.save(newShop()).getId();
+    }
+
+    @Test
+    void importsValidCsvLinesAndReportsTheRest() throws Exception {
+        String csv = String.join("\n",
+                "Name,Price,Quantity,Category,Tags,Description",
+                "Bread,120,5,Bakery,\"vegan, fresh\",Whole wheat",
+                "Cake,abc,2,Bakery,,",
+                "\"Rice, curry\",350.5,3,Meals,spicy,\"Comes with \"\"dhal\"\"\"",
+                ",100,1,Bakery,,",
+                "Bun,80,-1,Bakery,,",
+                "",
+                "Roll,\"90,2,Bakery,,");
+
+        ImportReportDTO report = importService.importFoodItems(shopId, stream(csv), FoodItemImportService.Format.CSV);
+
+        assertEquals(2, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertEquals(List.of(3, 5, 6, 8), report.getErrors().stream().map(ImportReportDTO.LineError::getLine).toList());
+        assertEquals("Price must be a number", report.getErrors().get(0).getMessage());
+
+        List<FoodItem> items = foodItemRepository.findAll().stream()
+                .sorted(Comparator.comparing(FoodItem::getId)).toList();
+        assertEquals(List.of("Bread", "Rice, curry"), items.stream().map(FoodItem::getName).toList());
+        assertEquals("vegan,fresh", items.get(0).getTags());
+        assertEquals("Comes with \"dhal\"", items.get(1).getDescription());
+        assertEquals(shopId, items.get(1).getShopId());
+
+        // Every imported row is announced with its generated id
+        assertEquals(items.stream().map(FoodItem::getId).toList(),
+                events.stream().map(FoodItemChangedEvent::itemId).toList());
+        assertTrue(events.stream().allMatch(event -> event.type() == ChangeType.IMPORTED));
+    }
+
+    @Test
+    void importsJsonArrays() throws Exception {
+        String json = """
+                [
+                  {"name": "Kottu", "price": 450, "quantity": 4, "category": "Meals", "tags": ["spicy", "hot"]},
+                  {"name": "Hoppers", "price": "60", "quantity": 1.5},
+                  "not an item",
+                  {"name": "Roti", "price": 40, "quantity": 10}
+                ]
+                """;
+
+        ImportReportDTO report = importService.importFoodItems(shopId, stream(json), FoodItemImportService.Format.JSON);
+
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(2, 3), report.getErrors().stream().map(ImportReportDTO.LineError::getLine).toList());
+        assertEquals("spicy,hot", foodItemRepository.findAll().stream()
+                .filter(item -> item.getName().equals("Kottu")).findFirst().orElseThrow().getTags());
+    }
+
+    @Test
+    void rejectsInputThatCannotBeParsedAsAWhole() {
+        assertThrows(IllegalArgumentException.class, () -> importService.importFoodItems(
+                shopId, stream("Title,Cost\nBread,100"), FoodItemImportService.Format.CSV));
+        assertThrows(IllegalArgumentException.class, () -> importService.importFoodItems(
+                shopId, stream("[{\"name\": \"Bread\", "), FoodItemImportService.Format.JSON));
+        assertThrows(RuntimeException.class, () -> importService.importFoodItems(
+                shopId + 1, stream("name,price,quantity"), FoodItemImportService.Format.CSV));
+    }
+
+    @Test
+    void importsTenThousandLinesInBatches() {
+        String csv = "name,description,price,quantity,category,tags\n" + IntStream.range(0, 10_000)
+                .mapToObj(i -> "Item " + i + ",Surplus batch " + i + "," + (i % 500) + ",3,Bakery,surplus")
+                .collect(Collectors.joining("\n"));
+
+        ImportReportDTO report = assertTimeout(Duration.ofSeconds(20), () ->
+                importService.importFoodItems(shopId, stream(csv), FoodItemImportService.Format.CSV));
+
+        assertEquals(10_000, report.getImported());
+        assertEquals(0, report.getRejected());
+        assertFalse(report.isErrorsTruncated());
+        assertEquals(10_000, foodItemRepository.count());
+        assertEquals(10_000, events.stream().map(FoodItemChangedEvent::itemId).distinct().count());
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static FoodShop newShop() {
+        FoodShop shop = new FoodShop();
+        shop.setName("Shop");
+        shop.setAddress("Colombo");
+        shop.setPhoneNumber("0110000000");
+        shop.setEmail("shop@example.com");
+        shop.setBusinessDescription("Bakery");
+        shop.setLatitude(6.9);
+        shop.setLongitude(79.8);
+        shop.setLicenseExpirationDate(LocalDate.now().plusYears(1));
+        return shop;
+    }
+}
@@ -0,0 +1,112 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.util.TextSearchIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+// Latency of TextSearchIndex (what FoodItemSearchIndex wraps) over a synthetic catalog.
+// Run with: java -cp target/classes:target/test-classes com.greenbite.backend.service.FoodItemSearchBenchmark [items]
+public class FoodItemSearchBenchmark {
+
+    private static final String[] COMMON_WORDS = {
+            "chicken", "kottu", "rice", "curry", "fish", "bun", "roti", "chocolate", "cake", "vegetable",
+            "spicy", "fresh", "egg", "hopper", "string", "dhal", "coconut", "sambol", "fried", "noodles",
+            "pastry", "bread", "butter", "cheese", "milk", "tea", "biscuit", "prawn", "cuttlefish", "mutton"
+    };
+    private static final String[] CATEGORIES = {
+            "Meals", "Bakery", "Snacks", "Desserts", "Drinks", "Rice", "Short eats", "Breakfast"
+    };
+    private static final int QUERIES_PER_KIND = 2_000;
+
+    public static void main(String[] args) {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        String[] vocabulary = vocabulary(random, 50_000);
+
+        TextSearchIndex index = new TextSearchIndex(20_000);
+        long start = System.nanoTime();
+        for (long id = 1; id <= itemCount; id++) {
+            index.put(id, words(random, vocabulary, 2 + random.nextInt(2)),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    words(random, vocabulary, 6 + random.nextInt(6)));
+        }
+        System.out.printf("Indexed %,d items in %,d ms%n", itemCount, (System.nanoTime() - start) / 1_000_000);
+
+        Map<String, Function<Random, String>> kinds = new LinkedHashMap<>();
+        kinds.put("one word", r -> pick(r, vocabulary));
+        kinds.put("two words", r -> pick(r, vocabulary) + " " + pick(r, vocabulary));
+        kinds.put("prefix (2 chars)", r -> prefix(pick(r, vocabulary), 2));
+        kinds.put("prefix (4 chars)", r -> prefix(pick(r, vocabulary), 4));
+        kinds.put("word + prefix", r -> pick(r, vocabulary) + " " + prefix(pick(r, vocabulary), 3));
+        kinds.put("one typo", r -> typo(r, pick(r, vocabulary)));
+        kinds.put("typo prefix", r -> typo(r, prefix(pick(r, vocabulary), 5)));
+
+        for (Map.Entry<String, Function<Random, String>> kind : kinds.entrySet()) {
+            boolean autocomplete = kind.getKey().contains("prefix");
+            // Warm up, then time a fresh set of queries
+            run(index, kind.getValue(), new Random(1), autocomplete);
+            long[] nanos = run(index, kind.getValue(), new Random(2), autocomplete);
+            Arrays.sort(nanos);
+            System.out.printf("%-18s p50 %7.3f ms   p99 %7.3f ms   max %7.3f ms%n", kind.getKey(),
+                    nanos[nanos.length / 2] / 1e6, nanos[(int) (nanos.length * 0.99)] / 1e6, nanos[nanos.length - 1] / 1e6);
+        }
+    }
+
+    private static long[] run(TextSearchIndex index, Function<Random, String> queries, Random random, boolean autocomplete) {
+        long[] nanos = new long[QUERIES_PER_KIND];
+        for (int i = 0; i < QUERIES_PER_KIND; i++) {
+            String query = queries.apply(random);
+            long start = System.nanoTime();
+            index.search(query, 10, autocomplete);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    // A few dozen very common words plus a long tail of generated ones
+    private static String[] vocabulary(Random random, int size) {
+        List<String> words = new ArrayList<>(Arrays.asList(COMMON_WORDS));
+        while (words.size() < size) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    // Skewed towards the front of the vocabulary, so common words are very common
+    private static String pick(Random random, String[] vocabulary) {
+        double skew = Math.pow(random.nextDouble(), 3);
+        return vocabulary[(int) (skew * vocabulary.length)];
+    }
+
+    private static String words(Random random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(pick(random, vocabulary));
+        }
+        return text.toString();
+    }
+
+    private static String prefix(String word, int length) {
+        return word.substring(0, Math.min(length, word.length()));
+    }
+
+    private static String typo(Random random, String word) {
+        char[] chars = word.toCharArray();
+        chars[1 + random.nextInt(chars.length - 1)] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+}
@@ -0,0 +1,42 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.FoodShopRepository;
+import com.greenbite.backend.repository.UserFavoriteRepository;
+
+import java.time.LocalDate;
+
+import static org.mockito.Mockito.mock;
+
+// A FoodItemService over the test repositories, with real caches and indexes and no file storage
+final class FoodItemServiceFixtures {
+
+    private FoodItemServiceFixtures() {
+    }
+
+    static FoodItemService foodItemService(FoodItemRepository foodItemRepository, FoodShopRepository foodShopRepository,
+                                           UserFavoriteRepository userFavoriteRepository, FoodShopService foodShopService,
+                                           HotStockService hotStockService, FoodItemExpiryScheduler expiryScheduler) {
+        ShopSummaryCache shopSummaryCache = new ShopSummaryCache(foodShopRepository, 1000, 60);
+        return new FoodItemService(
+                foodItemRepository, userFavoriteRepository, null, foodShopService, shopSummaryCache,
+                new NearbyItemCache(new ShopSpatialIndex(0.05), shopSummaryCache, 100, 60, 6),
+                new FoodItemTagIndex(foodItemRepository), new FoodItemSearchIndex(foodItemRepository, 20000),
+                new CategoryFacetCounter(foodItemRepository, mock(HotStockService.class)), hotStockService,
+                expiryScheduler, event -> { });
+    }
+
+    static FoodShop newShop(String name) {
+        FoodShop shop = new FoodShop();
+        shop.setName(name);
+        shop.setAddress("Colombo");
+        shop.setPhoneNumber("0110000000");
+        shop.setEmail("shop@example.com");
+        shop.setBusinessDescription("Bakery");
+        shop.setLatitude(6.9);
+        shop.setLongitude(79.8);
+        shop.setLicenseExpirationDate(LocalDate.now().plusYears(1));
+        return shop;
+    }
+}
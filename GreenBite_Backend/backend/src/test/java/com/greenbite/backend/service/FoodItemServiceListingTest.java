@@ -0,0 +1,171 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.CursorPage;
+import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.FoodShopRepository;
+import com.greenbite.backend.repository.UserFavoriteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.greenbite.backend.service.FoodItemServiceFixtures.foodItemService;
+import static com.greenbite.backend.service.FoodItemServiceFixtures.newShop;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class FoodItemServiceListingTest {
+
+    private static final int SHOPS = 40;
+    private static final int ITEMS_PER_SHOP = 25;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private FoodShopRepository foodShopRepository;
+
+    @Autowired
+    private UserFavoriteRepository userFavoriteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void listingResolvesShopNamesWithoutPerItemQueries() {
+        FoodItemService foodItemService = seedCatalog();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Cold cache: the item query plus one bulk shop summary query
+        List<FoodItemDTO> items = foodItemService.getAllFoodItems();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(SHOPS * ITEMS_PER_SHOP, items.size());
+        assertTrue(items.stream().allMatch(item -> item.getRestaurant() != null && item.getRestaurant().startsWith("Shop ")));
+
+        // Warm cache: only the item query
+        entityManager.clear();
+        statistics.clear();
+        foodItemService.getAllFoodItems();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void keysetPagesWalkTheWholeTableWithConstantCostPerPage() {
+        FoodItemService foodItemService = seedCatalog();
+        foodItemService.getAllFoodItems(); // warm the shop summary cache
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Set<Long> seenIds = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            entityManager.clear();
+            statistics.clear();
+            CursorPage<FoodItemDTO> page = foodItemService.getFoodItemsPage(cursor, 70);
+
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertTrue(page.getItems().size() <= 70);
+            page.getItems().forEach(item -> assertTrue(seenIds.add(item.getId())));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(SHOPS * ITEMS_PER_SHOP, seenIds.size());
+        assertEquals((SHOPS * ITEMS_PER_SHOP + 69) / 70, pages);
+    }
+
+    @Test
+    void exportStreamsEveryItemAsOneJsonArray() throws Exception {
+        FoodItemService foodItemService = seedCatalog();
+        ReflectionTestUtils.setField(foodItemService, "entityManager", entityManager);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            foodItemService.exportFoodItems(generator);
+        }
+
+        JsonNode exported = objectMapper.readTree(out.toByteArray());
+        assertTrue(exported.isArray());
+        assertEquals(SHOPS * ITEMS_PER_SHOP, exported.size());
+        assertTrue(exported.get(0).get("restaurant").asText().startsWith("Shop "));
+    }
+
+    @Test
+    void updateKeepsTheScheduleUnlessItIsSuppliedOrCleared() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(3);
+        LocalDateTime markdownAt = LocalDateTime.now().plusHours(1);
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", "desc", 100.0, 5, null, "", 1L, "Bakery",
+                expiresAt, markdownAt, 60.0));
+        FoodItemExpiryScheduler expiryScheduler = mock(FoodItemExpiryScheduler.class);
+        FoodItemService foodItemService = foodItemService(foodItemRepository, foodShopRepository, userFavoriteRepository,
+                mock(FoodShopService.class), mock(HotStockService.class), expiryScheduler);
+
+        // An older client edits the name and price only
+        FoodItemDTO edit = new FoodItemDTO();
+        edit.setId(bread.getId());
+        edit.setName("Sourdough");
+        edit.setPrice(120.0);
+        edit.setQuantity(5);
+        edit.setTags(List.of());
+        FoodItemDTO updated = foodItemService.updateFoodItem(edit);
+        assertEquals("Sourdough", updated.getName());
+        assertEquals(expiresAt, updated.getExpiresAt());
+        assertEquals(markdownAt, updated.getMarkdownAt());
+        assertEquals(60.0, updated.getMarkdownPrice());
+
+        edit.setClearSchedule(true);
+        edit.setExpiresAt(expiresAt.plusHours(1));
+        updated = foodItemService.updateFoodItem(edit);
+        assertEquals(expiresAt.plusHours(1), updated.getExpiresAt());
+        assertNull(updated.getMarkdownAt());
+        assertNull(updated.getMarkdownPrice());
+        verify(expiryScheduler, times(2)).schedule(any());
+    }
+
+    private FoodItemService seedCatalog() {
+        for (int i = 0; i < SHOPS; i++) {
+            FoodShop shop = foodShopRepository.save(newShop("Shop " + i));
+            for (int j = 0; j < ITEMS_PER_SHOP; j++) {
+                foodItemRepository.save(new FoodItem(null, "Item " + j, "desc", 100.0, 5, null, "veg", shop.getId(), "Meals", null, null, null));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        return foodItemService(foodItemRepository, foodShopRepository, userFavoriteRepository,
+                mock(FoodShopService.class), null, null);
+    }
+}
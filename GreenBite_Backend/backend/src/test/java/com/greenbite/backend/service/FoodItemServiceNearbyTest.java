@@ -0,0 +1,89 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.FoodShopRepository;
+import com.greenbite.backend.repository.UserFavoriteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.greenbite.backend.service.FoodItemServiceFixtures.foodItemService;
+import static com.greenbite.backend.service.FoodItemServiceFixtures.newShop;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class FoodItemServiceNearbyTest {
+
+    private static final int ITEMS_PER_SHOP = 5;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private FoodShopRepository foodShopRepository;
+
+    @Autowired
+    private UserFavoriteRepository userFavoriteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 60})
+    void nearbySearchIssuesOneStatementRegardlessOfMatches(int shopCount) {
+        List<Long> shopIds = new ArrayList<>();
+        for (int i = 0; i < shopCount; i++) {
+            FoodShop shop = foodShopRepository.save(newShop("Shop " + i));
+            shopIds.add(shop.getId());
+            for (int j = 0; j < ITEMS_PER_SHOP; j++) {
+                // The first item of every shop is out of stock
+                foodItemRepository.save(new FoodItem(null, "Item " + j, "desc", 100.0, j, null, "veg,fresh", shop.getId(), "Meals", null, null, null));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        FoodShopService foodShopService = mock(FoodShopService.class);
+        when(foodShopService.findShopIdsNearby(anyDouble(), anyDouble(), anyDouble())).thenReturn(shopIds);
+        FoodItemService foodItemService = foodItemService(foodItemRepository, foodShopRepository, userFavoriteRepository,
+                foodShopService, null, null);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<FoodItemDTO> nearbyItems = foodItemService.getFoodItemsNearby(6.9, 79.8, 5);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(shopCount * (ITEMS_PER_SHOP - 1), nearbyItems.size());
+        assertTrue(nearbyItems.stream().allMatch(item -> item.getRestaurant() != null && item.getQuantity() > 0));
+
+        // A repeated search is served from the tile cache, still with a single statement
+        entityManager.clear();
+        statistics.clear();
+        List<FoodItemDTO> cachedItems = foodItemService.getFoodItemsNearby(6.9, 79.8, 5);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(nearbyItems.size(), cachedItems.size());
+    }
+}
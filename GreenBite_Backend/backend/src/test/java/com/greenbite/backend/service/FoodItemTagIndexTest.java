@@ -0,0 +1,75 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FoodItemTagIndexTest {
+
+    private FoodItemTagIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FoodItemTagIndex(null);
+        create(item(1L, "veg,fresh", 10L, "Meals"));
+        create(item(2L, "Veg, spicy", 10L, "Meals"));
+        create(item(3L, "fresh,spicy", 20L, "Bakery"));
+        create(item(4L, "", 20L, "Bakery"));
+    }
+
+    @Test
+    void combinesAllAnyCategoryAndShopFilters() {
+        assertEquals(List.of(1L, 2L), filter(List.of("veg"), null, null, null));
+        assertEquals(List.of(2L), filter(List.of("veg", "SPICY"), null, null, null));
+        assertEquals(List.of(1L, 3L), filter(null, List.of("fresh", "unknown"), null, null));
+        assertEquals(List.of(3L), filter(null, List.of("fresh"), "bakery", null));
+        assertEquals(List.of(2L), filter(List.of("spicy"), null, null, 10L));
+        assertEquals(List.of(3L, 4L), filter(null, null, "Bakery", null));
+        assertEquals(List.of(), filter(List.of("veg", "unknown"), null, null, null));
+    }
+
+    @Test
+    void pagesFromTheCursorId() {
+        FoodItemTagIndex.Filter filter = new FoodItemTagIndex.Filter(null, List.of("veg", "fresh", "spicy"), null, null);
+        assertEquals(List.of(1L, 2L), index.filter(filter, 0, 2));
+        assertEquals(List.of(3L), index.filter(filter, 2, 2));
+    }
+
+    @Test
+    void updatesAndDeletesMoveItemsBetweenBitmaps() {
+        FoodItemSnapshot before = item(1L, "veg,fresh", 10L, "Meals");
+        FoodItemSnapshot after = item(1L, "vegan", 20L, "Meals");
+        index.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.UPDATED, before, after));
+
+        assertEquals(List.of(2L), filter(List.of("veg"), null, null, null));
+        assertEquals(List.of(1L), filter(List.of("vegan"), null, null, 20L));
+
+        index.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.DELETED, item(3L, "fresh,spicy", 20L, "Bakery"), null));
+        assertEquals(List.of(), filter(List.of("fresh"), null, null, null));
+        assertEquals(List.of(1L, 4L), filter(null, null, null, 20L));
+    }
+
+    @Test
+    void rejectsEmptyFilters() {
+        assertThrows(IllegalArgumentException.class, () -> filter(null, List.of(" "), null, null));
+    }
+
+    private List<Long> filter(List<String> all, List<String> any, String category, Long shopId) {
+        return index.filter(new FoodItemTagIndex.Filter(all, any, category, shopId), 0, 100);
+    }
+
+    private void create(FoodItemSnapshot item) {
+        index.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.CREATED, null, item));
+    }
+
+    private static FoodItemSnapshot item(Long id, String tags, Long shopId, String category) {
+        return new FoodItemSnapshot(id, "Item " + id, null, 100.0, 5, tags, shopId, category);
+    }
+}
@@ -0,0 +1,106 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.dto.CursorPage;
+import com.greenbite.backend.dto.NearbyShopDTO;
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.repository.FoodShopRepository;
+import com.greenbite.backend.util.GeoUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class FoodShopServiceTest {
+
+    private static final double LAT = 6.9271;
+    private static final double LON = 79.8612;
+    private static final double RADIUS_KM = 20;
+
+    @Autowired
+    private FoodShopRepository foodShopRepository;
+
+    private final List<FoodShop> inRange = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Ten shops on each of 25 spots, so most distances are shared by a run of ids
+        for (int spot = 0; spot < 25; spot++) {
+            double lat = LAT + 0.004 * (spot % 5);
+            double lon = LON + 0.004 * (spot / 5);
+            for (int i = 0; i < 10; i++) {
+                inRange.add(foodShopRepository.save(shop(lat, lon)));
+            }
+        }
+        foodShopRepository.save(shop(LAT + 1, LON));
+        inRange.sort(Comparator.comparingDouble((FoodShop shop) -> distanceKm(shop)).thenComparingLong(FoodShop::getId));
+    }
+
+    @Test
+    void pagesThroughTiedDistancesWithoutGapsOrDuplicates() {
+        assertPagesCoverEveryShopInOrder(service(true), 7);
+        assertPagesCoverEveryShopInOrder(service(false), 7);
+        // 250 shops in pages of 10: the last page is full and still has no cursor
+        assertPagesCoverEveryShopInOrder(service(true), 10);
+    }
+
+    @Test
+    void kIsCappedAtTheMaximum() {
+        CursorPage<NearbyShopDTO> page = service(true).findNearestShops(LAT, LON, RADIUS_KM, 1000, null);
+
+        assertEquals(100, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+    }
+
+    private void assertPagesCoverEveryShopInOrder(FoodShopService service, int k) {
+        List<Long> seen = new ArrayList<>();
+        double previous = 0;
+        String cursor = null;
+        do {
+            CursorPage<NearbyShopDTO> page = service.findNearestShops(LAT, LON, RADIUS_KM, k, cursor);
+            assertTrue(page.getItems().size() <= k);
+            for (NearbyShopDTO shop : page.getItems()) {
+                assertTrue(shop.getDistanceKm() >= previous, "not in ascending distance");
+                previous = shop.getDistanceKm();
+                seen.add(shop.getShopId());
+            }
+            cursor = page.getNextCursor();
+            if (cursor == null) {
+                assertEquals(inRange.size(), seen.size(), "stopped early");
+            }
+        } while (cursor != null);
+
+        assertEquals(inRange.stream().map(FoodShop::getId).toList(), seen);
+    }
+
+    private FoodShopService service(boolean spatialIndexEnabled) {
+        ShopSpatialIndex index = new ShopSpatialIndex(0.05);
+        FoodShopService service = new FoodShopService();
+        ReflectionTestUtils.setField(service, "foodShopRepository", foodShopRepository);
+        ReflectionTestUtils.setField(service, "shopSpatialIndex", index);
+        ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(service, "spatialIndexEnabled", spatialIndexEnabled);
+        service.buildSpatialIndex();
+        return service;
+    }
+
+    private static double distanceKm(FoodShop shop) {
+        return GeoUtils.distanceKm(LAT, LON, shop.getLatitude(), shop.getLongitude());
+    }
+
+    private static FoodShop shop(double lat, double lon) {
+        return new FoodShop(null, "Shop", "Colombo", "0110000000", "shop@example.com", "Bakery", null, lat, lon,
+                LocalDate.of(2030, 1, 1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.event.FoodShopChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NearbyItemCacheTest {
+
+    private final ShopSummaryCache shopSummaryCache = mock(ShopSummaryCache.class);
+
+    @Test
+    void itemChangesDropOnlyTheTilesAroundTheShop() {
+        // The spatial index is left empty, as it is when disabled
+        when(shopSummaryCache.get(1L)).thenReturn(new ShopSummaryCache.ShopSummary(1L, "Bakery", null, 6.9271, 79.8612));
+        NearbyItemCache cache = new NearbyItemCache(new ShopSpatialIndex(0.05), shopSummaryCache, 100, 60, 6);
+        NearbyItemCache.Tile near = store(cache, 6.93, 79.86, 5);
+        NearbyItemCache.Tile wide = store(cache, 7.2, 80.1, 50);
+        NearbyItemCache.Tile far = store(cache, 7.2906, 80.6337, 5);
+
+        cache.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.CREATED, null, item(10L, 1L, 3)));
+
+        assertNull(cache.lookup(near, 6.93, 79.86, 5));
+        assertNull(cache.lookup(wide, 7.2, 80.1, 50));
+        assertNotNull(cache.lookup(far, 7.2906, 80.6337, 5));
+        assertEquals(2L, cache.stats().get("invalidatedEntries"));
+
+        // A stock edit that keeps the item listed leaves every entry alone
+        NearbyItemCache.Tile again = store(cache, 6.93, 79.86, 5);
+        cache.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.STOCK_CHANGED, item(10L, 1L, 3), item(10L, 1L, 2)));
+        assertNotNull(cache.lookup(again, 6.93, 79.86, 5));
+    }
+
+    @Test
+    void shopsWithoutCoordinatesLeaveTheCacheAloneAndMovesDropBothEnds() {
+        NearbyItemCache cache = new NearbyItemCache(new ShopSpatialIndex(0.05), shopSummaryCache, 100, 60, 6);
+        NearbyItemCache.Tile colombo = store(cache, 6.93, 79.86, 5);
+        NearbyItemCache.Tile kandy = store(cache, 7.2906, 80.6337, 5);
+        NearbyItemCache.Tile galle = store(cache, 6.0535, 80.221, 5);
+
+        cache.onFoodItemChanged(new FoodItemChangedEvent(ChangeType.CREATED, null, item(10L, 9L, 3)));
+        assertEquals(3L, cache.stats().get("size"));
+
+        cache.onFoodShopChanged(new FoodShopChangedEvent(ChangeType.UPDATED, 1L, 6.9271, 79.8612, 7.2906, 80.6337));
+
+        assertNull(cache.lookup(colombo, 6.93, 79.86, 5));
+        assertNull(cache.lookup(kandy, 7.2906, 80.6337, 5));
+        assertNotNull(cache.lookup(galle, 6.0535, 80.221, 5));
+    }
+
+    @Test
+    void aResultReadBeforeAnInvalidationIsNotStored() {
+        NearbyItemCache cache = new NearbyItemCache(new ShopSpatialIndex(0.05), shopSummaryCache, 100, 60, 6);
+        NearbyItemCache.Tile tile = cache.tileFor(6.93, 79.86, 5);
+
+        cache.onFoodShopChanged(new FoodShopChangedEvent(ChangeType.UPDATED, 1L, null, null, 6.9271, 79.8612));
+        cache.store(tile, List.of(new NearbyItemCache.ItemLocation(10L, 6.9271, 79.8612)));
+
+        assertNull(cache.lookup(tile, 6.93, 79.86, 5));
+    }
+
+    private static NearbyItemCache.Tile store(NearbyItemCache cache, double lat, double lon, double radiusKm) {
+        NearbyItemCache.Tile tile = cache.tileFor(lat, lon, radiusKm);
+        cache.store(tile, List.of(new NearbyItemCache.ItemLocation(10L, lat, lon)));
+        return tile;
+    }
+
+    private static FoodItemSnapshot item(Long id, Long shopId, int quantity) {
+        return new FoodItemSnapshot(id, "Bread", null, 2.0, quantity, "", shopId, "Bakery");
+    }
+}
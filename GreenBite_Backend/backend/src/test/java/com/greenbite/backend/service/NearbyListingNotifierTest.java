@@ -0,0 +1,88 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.event.FoodItemSnapshot;
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.notification.InMemoryNotificationSink;
+import com.greenbite.backend.notification.NearbyListingNotification;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NearbyListingNotifierTest {
+
+    private UserLocationIndex userLocationIndex;
+    private final ShopSummaryCache shopSummaryCache = mock(ShopSummaryCache.class);
+    private InMemoryNotificationSink sink;
+    private NearbyListingNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        ShopSpatialIndex shopSpatialIndex = new ShopSpatialIndex(0.05);
+        FoodShop shop = new FoodShop();
+        shop.setId(1L);
+        shop.setLatitude(6.9271);
+        shop.setLongitude(79.8612);
+        shopSpatialIndex.put(shop);
+
+        userLocationIndex = new UserLocationIndex(null, 0.05);
+        sink = new InMemoryNotificationSink();
+        // Run the fan-out on the calling thread so the test can assert on the sink directly
+        notifier = new NearbyListingNotifier(userLocationIndex, shopSpatialIndex, shopSummaryCache, sink, 5, 2, Runnable::run);
+    }
+
+    @Test
+    void notifiesOnlyUsersWithinRadiusInBatches() {
+        userLocationIndex.put(10L, 6.9280, 79.8620);
+        userLocationIndex.put(11L, 6.9300, 79.8700);
+        userLocationIndex.put(12L, 6.9000, 79.8600);
+        userLocationIndex.put(13L, 7.2906, 80.6337); // Kandy, far outside the radius
+
+        notifier.onFoodItemChanged(created(1L, 5));
+
+        Set<Long> recipients = sink.notifications().stream()
+                .map(NearbyListingNotification::userId)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of(10L, 11L, 12L), recipients);
+        assertEquals(2, sink.batches().size());
+        assertTrue(sink.batches().stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(3, notifier.notificationsSent());
+    }
+
+    @Test
+    void ignoresOutOfStockAndUnknownShopListings() {
+        userLocationIndex.put(10L, 6.9280, 79.8620);
+
+        notifier.onFoodItemChanged(created(1L, 0));
+        notifier.onFoodItemChanged(created(99L, 5));
+
+        assertTrue(sink.notifications().isEmpty());
+        assertEquals(1, notifier.unlocatedListings());
+    }
+
+    @Test
+    void fallsBackToTheShopRowWhenTheSpatialIndexIsDisabled() {
+        userLocationIndex.put(10L, 6.9280, 79.8620);
+        when(shopSummaryCache.get(2L)).thenReturn(new ShopSummaryCache.ShopSummary(2L, "Deli", null, 6.9271, 79.8612));
+        NearbyListingNotifier withoutIndex = new NearbyListingNotifier(userLocationIndex, new ShopSpatialIndex(0.05),
+                shopSummaryCache, sink, 5, 2, Runnable::run);
+
+        withoutIndex.onFoodItemChanged(created(2L, 5));
+
+        assertEquals(1, withoutIndex.notificationsSent());
+        assertEquals(0, withoutIndex.unlocatedListings());
+    }
+
+    private static FoodItemChangedEvent created(Long shopId, int quantity) {
+        FoodItemSnapshot item = new FoodItemSnapshot(100L, "Bread", null, 200.0, quantity, "", shopId, "Bakery");
+        return new FoodItemChangedEvent(ChangeType.CREATED, null, item);
+    }
+}
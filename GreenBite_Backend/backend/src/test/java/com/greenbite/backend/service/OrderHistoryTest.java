@@ -0,0 +1,78 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.dto.CursorPage;
+import com.greenbite.backend.dto.OrderSummaryDTO;
+import com.greenbite.backend.model.Order;
+import com.greenbite.backend.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class OrderHistoryTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void pagesThroughAWindowNewestFirstAcrossEqualTimestamps() {
+        List<Long> expected = new ArrayList<>();
+        orderRepository.save(order(1L, 1L, NOON.minusDays(30)));
+        for (int i = 0; i < 7; i++) {
+            // Pairs of orders share a timestamp, so the id has to break ties
+            expected.add(0, orderRepository.save(order(1L, 1L, NOON.plusMinutes(i / 2))).getId());
+        }
+        orderRepository.save(order(2L, 1L, NOON));
+        orderRepository.save(order(1L, 1L, NOON.plusDays(2)));
+        OrderService service = service();
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<OrderSummaryDTO> page = service.getCustomerOrderHistory(1L, NOON.minusDays(1), NOON.plusDays(1), cursor, 3);
+            page.getItems().forEach(order -> seen.add(order.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(expected, seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void shopHistoryDefaultsToTheLastDaysAndChecksItsArguments() {
+        LocalDateTime now = LocalDateTime.now();
+        Order recent = orderRepository.save(order(1L, 5L, now.minusDays(1)));
+        orderRepository.save(order(2L, 5L, now.minusDays(OrderService.DEFAULT_HISTORY_DAYS + 1)));
+        orderRepository.save(order(1L, 6L, now.minusDays(1)));
+        OrderService service = service();
+
+        CursorPage<OrderSummaryDTO> page = service.getShopOrderHistory(5L, null, null, null, 50);
+        assertEquals(List.of(recent.getId()), page.getItems().stream().map(OrderSummaryDTO::getId).toList());
+        assertEquals(5L, page.getItems().get(0).getShopId());
+        assertNull(page.getNextCursor());
+
+        assertThrows(IllegalArgumentException.class, () -> service.getShopOrderHistory(5L, now, now.minusDays(1), null, 50));
+        assertThrows(IllegalArgumentException.class, () -> service.getShopOrderHistory(5L, now.minusDays(400), now, null, 50));
+        assertThrows(IllegalArgumentException.class, () -> service.getShopOrderHistory(5L, null, null, "bogus", 50));
+    }
+
+    private OrderService service() {
+        return new OrderService(orderRepository, null, null, event -> { });
+    }
+
+    private static Order order(Long customerId, Long shopId, LocalDateTime orderDate) {
+        return new Order(null, customerId, shopId, "card", "pending", 100f, 0f, orderDate, 0, 0, "[]", null, null);
+    }
+}
@@ -0,0 +1,159 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.dto.OrderDTO;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs outside the test transaction so each submission commits on its own
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderIdempotencyServiceTest {
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        HotStockService hotStockService = new HotStockService(jdbcTemplate, transactionManager, new ObjectMapper(), new CatalogVersions());
+        StockReservationService reservations = new StockReservationService(jdbcTemplate, hotStockService, event -> { });
+        orderService = new OrderService(orderRepository, reservations, new OrderItemWriter(jdbcTemplate), event -> { });
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAll();
+        foodItemRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentRetriesCreateOneOrderAndTakeStockOnce() throws Exception {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 10, null, "", 1L, "Bakery", null, null, null));
+        OrderIdempotencyService service = service();
+
+        List<OrderIdempotencyService.Result> results = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<OrderIdempotencyService.Result>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return service.createOrder("key-1", order(bread.getId(), 3, 1L));
+                }));
+            }
+            start.countDown();
+            for (Future<OrderIdempotencyService.Result> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, orderRepository.count());
+        assertEquals(7, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertEquals(1, results.stream().filter(result -> !result.replayed()).count());
+        assertTrue(results.stream().allMatch(result -> result.order().getId().equals(results.get(0).order().getId())));
+    }
+
+    @Test
+    void keysOutlivingTheCacheAreFoundInTheDatabase() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 10, null, "", 1L, "Bakery", null, null, null));
+        OrderIdempotencyService.Result first = service().createOrder("key-2", order(bread.getId(), 2, 1L));
+        assertFalse(first.replayed());
+
+        // A fresh cache, as after a restart or eviction
+        OrderIdempotencyService restarted = service();
+        OrderIdempotencyService.Result replay = restarted.createOrder("key-2", order(bread.getId(), 2, 1L));
+        assertTrue(replay.replayed());
+        assertEquals(first.order().getId(), replay.order().getId());
+        assertEquals(8, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+
+        OrderDTO otherShop = order(bread.getId(), 2, 1L);
+        otherShop.setShopId(2L);
+        assertThrows(IllegalStateException.class, () -> restarted.createOrder("key-2", otherShop));
+        assertThrows(IllegalArgumentException.class, () -> restarted.createOrder(" ", order(bread.getId(), 2, 1L)));
+        assertThrows(IllegalArgumentException.class, () -> restarted.createOrder("key-2", order(bread.getId(), 2, null)));
+    }
+
+    @Test
+    void keysAreScopedToTheCustomer() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 10, null, "", 1L, "Bakery", null, null, null));
+        OrderIdempotencyService service = service();
+
+        OrderIdempotencyService.Result first = service.createOrder("1", order(bread.getId(), 2, 1L));
+        OrderIdempotencyService.Result other = service.createOrder("1", order(bread.getId(), 3, 2L));
+        // Found in the database too, not only in the cache
+        OrderIdempotencyService.Result replay = service().createOrder("1", order(bread.getId(), 3, 2L));
+
+        assertFalse(other.replayed());
+        assertTrue(replay.replayed());
+        assertEquals(other.order().getId(), replay.order().getId());
+        assertEquals(2, orderRepository.count());
+        assertEquals(5, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertFalse(first.order().getId().equals(other.order().getId()));
+    }
+
+    @Test
+    void failedRequestsAreNotRemembered() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 1, null, "", 1L, "Bakery", null, null, null));
+        OrderIdempotencyService service = service();
+
+        assertThrows(InsufficientStockException.class, () -> service.createOrder("key-3", order(bread.getId(), 2, 1L)));
+        assertFalse(service.createOrder("key-3", order(bread.getId(), 1, 1L)).replayed());
+        assertEquals(0, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+    }
+
+    private OrderIdempotencyService service() {
+        return new OrderIdempotencyService(orderService, orderRepository, transactionManager, 100, 3600, 30_000);
+    }
+
+    private static OrderDTO order(Long itemId, int quantity, Long customerId) {
+        FoodItemDTO line = new FoodItemDTO();
+        line.setId(itemId);
+        line.setQuantity(quantity);
+        line.setPrice(100.0);
+        OrderDTO order = new OrderDTO();
+        order.setCustomerId(customerId);
+        order.setShopId(1L);
+        order.setPaymentMethod("card");
+        order.setItems(List.of(line));
+        return order;
+    }
+}
@@ -0,0 +1,146 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.PendingOrderDTO;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of synchronous /confirm-style order placement against the asynchronous intake
+// with group commit, on the embedded H2 database. The request-side latency is what a Tomcat
+// thread would be held for. H2 does not fsync on commit, so against MySQL the group commit
+// gain is larger than shown here.
+// Not part of the test suite; run with: mvn test -Dtest=OrderIntakeBenchmark
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderIntakeBenchmark {
+
+    private static final int ORDERS = 4_000;
+    private static final int CLIENTS = 64;
+    private static final int ITEMS = 50;
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareSynchronousAndGroupCommitIntake() throws Exception {
+        HotStockService hotStockService = new HotStockService(jdbcTemplate, transactionManager, new ObjectMapper(), new CatalogVersions());
+        StockReservationService reservations = new StockReservationService(jdbcTemplate, hotStockService, event -> { });
+        OrderService orderService = new OrderService(orderRepository, reservations, new OrderItemWriter(jdbcTemplate), event -> { });
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        for (int round = 0; round < 2; round++) {
+            // The first round warms up
+            List<Long> itemIds = seed();
+            long[] sync = run(itemIds, itemId -> transaction.execute(status -> orderService.createOrder(OrderIntakeServiceTest.order(itemId, 1))));
+            sync[ORDERS] = System.nanoTime() - sync[ORDERS];
+            report(round, "synchronous", sync);
+            reset();
+
+            itemIds = seed();
+            OrderIntakeService intake = new OrderIntakeService(orderService, reservations, transactionManager, true, ORDERS, 32, 2, 60_000, 600);
+            intake.start();
+            List<CompletableFuture<PendingOrderDTO>> done = new ArrayList<>();
+            long[] async = run(itemIds, itemId -> {
+                PendingOrderDTO ticket = intake.submit(OrderIntakeServiceTest.order(itemId, 1));
+                synchronized (done) {
+                    done.add(intake.whenDone(ticket.getPendingId()));
+                }
+                return null;
+            });
+            CompletableFuture.allOf(done.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
+            async[ORDERS] = System.nanoTime() - async[ORDERS];
+            report(round, "async intake", async);
+            if (round > 0) {
+                System.out.println("  " + intake.stats());
+            }
+            intake.shutdown();
+            reset();
+        }
+    }
+
+    interface Placement {
+        Object place(Long itemId) throws Exception;
+    }
+
+    // Request latencies in the first ORDERS slots, the start time in the last
+    private long[] run(List<Long> itemIds, Placement placement) throws Exception {
+        long[] nanos = new long[ORDERS + 1];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                int order = i;
+                futures.add(clients.submit(() -> {
+                    start.await();
+                    long begin = System.nanoTime();
+                    placement.place(itemIds.get(order % itemIds.size()));
+                    nanos[order] = System.nanoTime() - begin;
+                    return null;
+                }));
+            }
+            nanos[ORDERS] = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        return nanos;
+    }
+
+    private static void report(int round, String name, long[] nanos) {
+        if (round == 0) {
+            return;
+        }
+        long wall = nanos[ORDERS];
+        long[] latencies = Arrays.copyOf(nanos, ORDERS);
+        Arrays.sort(latencies);
+        System.out.printf("%-12s %,8.0f orders/s   request p50 %7.3f ms   p99 %7.3f ms%n", name,
+                ORDERS / (wall / 1e9), latencies[ORDERS / 2] / 1e6, latencies[(int) (ORDERS * 0.99)] / 1e6);
+    }
+
+    private List<Long> seed() {
+        List<Long> itemIds = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            itemIds.add(foodItemRepository.save(new FoodItem(null, "Item " + i, null, 100.0, ORDERS, null, "", 1L,
+                    "Bakery", null, null, null)).getId());
+        }
+        return itemIds;
+    }
+
+    private void reset() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAll();
+        foodItemRepository.deleteAll();
+    }
+}
@@ -0,0 +1,200 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.dto.OrderDTO;
+import com.greenbite.backend.dto.PendingOrderDTO;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs outside the test transaction; the intake workers commit their own groups
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderIntakeServiceTest {
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private StockReservationService reservations;
+    private OrderService orderService;
+    private OrderIntakeService intake;
+
+    @BeforeEach
+    void setUp() {
+        HotStockService hotStockService = new HotStockService(jdbcTemplate, transactionManager, new ObjectMapper(), new CatalogVersions());
+        reservations = new StockReservationService(jdbcTemplate, hotStockService, event -> { });
+        orderService = new OrderService(orderRepository, reservations, new OrderItemWriter(jdbcTemplate), event -> { });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (intake != null) {
+            intake.shutdown();
+        }
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAll();
+        foodItemRepository.deleteAll();
+    }
+
+    @Test
+    void placesQueuedOrdersInGroupsAndRejectsWhatWouldOversell() throws Exception {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 150, null, "", 1L, "Bakery", null, null, null));
+        intake = intake(1000, 2);
+
+        List<PendingOrderDTO> tickets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tickets.add(intake.submit(order(bread.getId(), 1)));
+        }
+        int confirmed = 0;
+        for (PendingOrderDTO ticket : tickets) {
+            PendingOrderDTO result = intake.whenDone(ticket.getPendingId()).get(60, TimeUnit.SECONDS);
+            if (OrderIntakeService.CONFIRMED.equals(result.getStatus())) {
+                confirmed++;
+            } else {
+                assertEquals(List.of(bread.getId()), result.getItemIds());
+            }
+            assertEquals(result, intake.status(ticket.getPendingId()));
+        }
+
+        assertEquals(150, confirmed);
+        assertEquals(150, orderRepository.count());
+        assertEquals(0, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertTrue(intake.stats().get("groupCommits") < 150, "orders were not grouped");
+        // Running out of stock is a rejection, not a failure
+        assertEquals(50L, intake.stats().get("rejected"));
+        assertEquals(0L, intake.stats().get("failed"));
+        assertEquals(0L, intake.stats().get("groupFallbacks"));
+        assertNull(intake.status("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> intake.submit(order(null, 1)));
+    }
+
+    @Test
+    void fullQueueRefusesOrdersAndShutdownDrainsTheRest() throws Exception {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 50, null, "", 1L, "Bakery", null, null, null));
+        intake = intake(5, 1);
+
+        // Hold the item's row so the only worker stalls on its first order
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = holdRow(bread.getId(), release);
+
+        List<PendingOrderDTO> tickets = new ArrayList<>();
+        tickets.add(intake.submit(order(bread.getId(), 1)));
+        while (intake.stats().get("queued") > 0) {
+            Thread.sleep(5);
+        }
+        for (int i = 0; i < 5; i++) {
+            tickets.add(intake.submit(order(bread.getId(), 1)));
+        }
+        assertThrows(OrderIntakeFullException.class, () -> intake.submit(order(bread.getId(), 1)));
+
+        release.countDown();
+        holder.join();
+        intake.shutdown();
+
+        for (PendingOrderDTO ticket : tickets) {
+            assertEquals(OrderIntakeService.CONFIRMED, intake.status(ticket.getPendingId()).getStatus());
+        }
+        assertEquals(44, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertThrows(OrderIntakeFullException.class, () -> intake.submit(order(bread.getId(), 1)));
+    }
+
+    @Test
+    void aSoldOutOrderIsRejectedAndTheRestOfItsGroupStillCommitsAsGroups() throws Exception {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 50, null, "", 1L, "Bakery", null, null, null));
+        FoodItem cake = foodItemRepository.save(new FoodItem(null, "Cake", null, 300.0, 1, null, "", 1L, "Bakery", null, null, null));
+        intake = intake(100, 1);
+
+        // The worker stalls on the first order while the next six queue up as one group
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = holdRow(bread.getId(), release);
+        intake.submit(order(bread.getId(), 1));
+        while (intake.stats().get("queued") > 0) {
+            Thread.sleep(5);
+        }
+        List<PendingOrderDTO> tickets = new ArrayList<>();
+        for (Long itemId : List.of(bread.getId(), cake.getId(), bread.getId(), cake.getId(), bread.getId(), bread.getId())) {
+            tickets.add(intake.submit(order(itemId, 1)));
+        }
+        release.countDown();
+        holder.join();
+        intake.shutdown();
+
+        List<String> statuses = new ArrayList<>();
+        tickets.forEach(ticket -> statuses.add(intake.status(ticket.getPendingId()).getStatus()));
+        String ok = OrderIntakeService.CONFIRMED;
+        assertEquals(List.of(ok, ok, ok, OrderIntakeService.REJECTED, ok, ok), statuses);
+        assertEquals(List.of(cake.getId()), intake.status(tickets.get(3).getPendingId()).getItemIds());
+        assertEquals(45, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        // The lone first order, then the orders ahead of the rejected one and those after it
+        assertEquals(3L, intake.stats().get("groupCommits"));
+        assertEquals(1L, intake.stats().get("groupRejections"));
+        assertEquals(0L, intake.stats().get("groupFallbacks"));
+    }
+
+    // Locks the item's row from another transaction until release is counted down
+    private Thread holdRow(Long itemId, CountDownLatch release) throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM food_items WHERE id = ? FOR UPDATE", itemId);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        locked.await(10, TimeUnit.SECONDS);
+        return holder;
+    }
+
+    private OrderIntakeService intake(int queueCapacity, int workers) {
+        OrderIntakeService service = new OrderIntakeService(orderService, reservations, transactionManager, true,
+                queueCapacity, 32, workers, 30_000, 600);
+        service.start();
+        return service;
+    }
+
+    static OrderDTO order(Long itemId, int quantity) {
+        FoodItemDTO line = new FoodItemDTO();
+        line.setId(itemId);
+        line.setQuantity(quantity);
+        line.setPrice(100.0);
+        OrderDTO order = new OrderDTO();
+        order.setCustomerId(1L);
+        order.setShopId(1L);
+        order.setPaymentMethod("card");
+        order.setItems(List.of(line));
+        return order;
+    }
+}
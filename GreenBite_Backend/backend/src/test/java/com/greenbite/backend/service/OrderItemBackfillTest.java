@@ -0,0 +1,79 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.model.Order;
+import com.greenbite.backend.repository.OrderItemRepository;
+import com.greenbite.backend.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs outside the test transaction; the backfill commits one chunk at a time
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderItemBackfillTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void copiesLegacyOrderLinesOnceAndSalesAreSummedInSql() {
+        // More orders than one chunk, each with two lines of items 1 and 2
+        for (int i = 0; i < OrderItemBackfill.CHUNK_SIZE + 20; i++) {
+            save(1L, DAY, "[{\"id\":1,\"quantity\":2,\"price\":50.0},{\"id\":2,\"quantity\":1,\"price\":120.0,\"hot\":true}]");
+        }
+        save(1L, DAY.plusDays(30), "[{\"id\":1,\"quantity\":5,\"price\":50.0}]");
+        save(2L, DAY, "[{\"id\":3,\"quantity\":1,\"price\":80.0}]");
+        save(1L, DAY, "not json");
+        save(1L, DAY, null);
+        // Written after the migration, with its lines already in order_items
+        Order current = save(1L, DAY, "[{\"id\":1,\"quantity\":1,\"price\":50.0}]");
+        new OrderItemWriter(jdbcTemplate).write(List.<Object[]>of(new Object[] {current.getId(), 1L, 1, 50.0}));
+
+        OrderItemBackfill backfill = new OrderItemBackfill(jdbcTemplate, transactionManager,
+                new OrderItemWriter(jdbcTemplate), new ObjectMapper(), false);
+        int legacyLines = 2 * (OrderItemBackfill.CHUNK_SIZE + 20) + 2;
+        assertEquals(legacyLines, backfill.backfill());
+        assertEquals(1L, backfill.stats().get("unreadableOrders"));
+        assertEquals(0, backfill.backfill());
+        assertEquals(legacyLines + 1, orderItemRepository.count());
+
+        ShopSalesService sales = new ShopSalesService(orderRepository, orderItemRepository);
+        Map<Long, Double> revenue = sales.getTotalSalesByShop(1L, DAY.minusDays(1), DAY.plusDays(1));
+        assertEquals(Map.of(1L, 100.0 * (OrderItemBackfill.CHUNK_SIZE + 20) + 50.0,
+                2L, 120.0 * (OrderItemBackfill.CHUNK_SIZE + 20)), revenue);
+    }
+
+    private Order save(Long shopId, LocalDateTime orderDate, String orderedItemsJson) {
+        return orderRepository.save(new Order(null, 7L, shopId, "card", "pending", 0f, 0f, orderDate, 0, 0,
+                orderedItemsJson, null, null));
+    }
+}
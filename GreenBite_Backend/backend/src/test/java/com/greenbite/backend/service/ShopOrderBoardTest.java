@@ -0,0 +1,122 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.event.ChangeType;
+import com.greenbite.backend.event.OrderChangedEvent;
+import com.greenbite.backend.model.Order;
+import com.greenbite.backend.repository.OrderRepository;
+import com.greenbite.backend.util.QueuedExecutor;
+import com.greenbite.backend.util.RecordingEmitter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ShopOrderBoardTest {
+
+    private static final List<String> CLOSED = List.of("completed", "Cancelled");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final QueuedExecutor executor = new QueuedExecutor();
+
+    @Test
+    void snapshotHoldsOnlyTheShopsOpenOrdersThenDeltasFollow() {
+        Order first = orderRepository.save(order(1L, "pending", 1));
+        orderRepository.save(order(1L, "COMPLETED", 2));
+        orderRepository.save(order(1L, "cancelled", 3));
+        Order ready = orderRepository.save(order(1L, "ready", 4));
+        orderRepository.save(order(2L, "pending", 5));
+        ShopOrderBoard board = board(orderRepository, 16, 100);
+        RecordingEmitter shop1 = subscribe(board, 1L);
+        RecordingEmitter shop2 = subscribe(board, 2L);
+        executor.drain();
+
+        assertEquals(List.of("snapshot"), shop1.names);
+        assertEquals(List.of(first.getId(), ready.getId()), orderIds(shop1.data.get(0)));
+
+        Order placed = orderRepository.save(order(1L, "pending", 6));
+        board.onOrderChanged(new OrderChangedEvent(ChangeType.CREATED, placed, null));
+        ready.setStatus("Completed");
+        board.onOrderChanged(new OrderChangedEvent(ChangeType.UPDATED, ready, "ready"));
+        executor.drain();
+
+        assertEquals(List.of("snapshot", "created", "status"), shop1.names);
+        assertTrue(shop1.data.get(1).contains("\"open\":true"));
+        assertTrue(shop1.data.get(2).contains("\"open\":false"));
+        assertTrue(shop1.data.get(2).contains("\"previousStatus\":\"ready\""));
+        assertEquals(List.of("snapshot"), shop2.names);
+        assertEquals(2L, board.stats().get("published"));
+    }
+
+    @Test
+    void changesCommittedWhileTheSnapshotIsReadFollowIt() {
+        OrderRepository repository = mock(OrderRepository.class);
+        ShopOrderBoard board = board(repository, 16, 100);
+        Order placed = order(1L, "pending", 1);
+        placed.setId(7L);
+        when(repository.findOpenByShopId(eq(1L), any())).thenAnswer(invocation -> {
+            board.onOrderChanged(new OrderChangedEvent(ChangeType.CREATED, placed, null));
+            executor.drain();
+            return List.of();
+        });
+
+        RecordingEmitter emitter = subscribe(board, 1L);
+        executor.drain();
+
+        assertEquals(List.of("snapshot", "created"), emitter.names);
+    }
+
+    @Test
+    void aShopIdIsRequiredAndAFailedSnapshotFreesTheSlot() {
+        OrderRepository repository = mock(OrderRepository.class);
+        ShopOrderBoard board = board(repository, 16, 1);
+        assertThrows(IllegalArgumentException.class, () -> board.subscribe(new RecordingEmitter(), null));
+        when(repository.findOpenByShopId(eq(1L), any())).thenThrow(new IllegalStateException("Database down"));
+
+        assertThrows(IllegalStateException.class, () -> subscribe(board, 1L));
+
+        assertEquals(0L, board.stats().get("subscribers"));
+        assertEquals(0L, board.stats().get("shops"));
+    }
+
+    private ShopOrderBoard board(OrderRepository repository, int queueCapacity, int maxSubscribers) {
+        return new ShopOrderBoard(repository, objectMapper, CLOSED, queueCapacity, maxSubscribers, 0, 0, executor);
+    }
+
+    private RecordingEmitter subscribe(ShopOrderBoard board, Long shopId) {
+        RecordingEmitter emitter = new RecordingEmitter();
+        board.subscribe(emitter, shopId);
+        return emitter;
+    }
+
+    private List<Long> orderIds(String snapshot) {
+        try {
+            List<Long> ids = new ArrayList<>();
+            objectMapper.readTree(snapshot).get("orders").forEach(order -> ids.add(order.get("id").asLong()));
+            return ids;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Order order(Long shopId, String status, int minutes) {
+        return new Order(null, 1L, shopId, "card", status, 100f, 0f, LocalDateTime.of(2025, 1, 1, 12, minutes),
+                0, 0, "[]", null, null);
+    }
+}
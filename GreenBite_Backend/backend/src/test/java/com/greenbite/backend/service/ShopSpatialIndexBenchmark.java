@@ -0,0 +1,89 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.model.FoodShop;
+import com.greenbite.backend.util.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+// Compares ShopSpatialIndex against the old findAll() + haversine full scan.
+// Run with: java -cp target/classes:target/test-classes com.greenbite.backend.service.ShopSpatialIndexBenchmark
+public class ShopSpatialIndexBenchmark {
+
+    private static final int[] SHOP_COUNTS = {1_000, 100_000, 1_000_000};
+    private static final int QUERIES = 200;
+    private static final double RADIUS_KM = 5;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        for (int shopCount : SHOP_COUNTS) {
+            List<FoodShop> shops = randomShops(random, shopCount);
+            ShopSpatialIndex index = new ShopSpatialIndex(0.05);
+            index.rebuild(shops);
+
+            double[][] queries = new double[QUERIES][];
+            for (int i = 0; i < QUERIES; i++) {
+                queries[i] = randomPoint(random);
+            }
+
+            // Warm up both paths before timing
+            for (int i = 0; i < 3; i++) {
+                runFullScan(shops, queries);
+                runIndex(index, queries);
+            }
+
+            long start = System.nanoTime();
+            long fullScanHits = runFullScan(shops, queries);
+            double fullScanMicros = (System.nanoTime() - start) / 1_000.0 / QUERIES;
+
+            start = System.nanoTime();
+            long indexHits = runIndex(index, queries);
+            double indexMicros = (System.nanoTime() - start) / 1_000.0 / QUERIES;
+
+            if (fullScanHits != indexHits) {
+                throw new IllegalStateException("Index returned " + indexHits + " hits, full scan " + fullScanHits);
+            }
+            System.out.printf("%,10d shops: full scan %,12.1f us/query, grid index %,10.1f us/query (%.0fx)%n",
+                    shopCount, fullScanMicros, indexMicros, fullScanMicros / indexMicros);
+        }
+    }
+
+    private static long runFullScan(List<FoodShop> shops, double[][] queries) {
+        long hits = 0;
+        for (double[] query : queries) {
+            hits += shops.stream()
+                    .filter(shop -> GeoUtils.distanceKm(query[0], query[1], shop.getLatitude(), shop.getLongitude()) <= RADIUS_KM)
+                    .collect(Collectors.toList())
+                    .size();
+        }
+        return hits;
+    }
+
+    private static long runIndex(ShopSpatialIndex index, double[][] queries) {
+        long hits = 0;
+        for (double[] query : queries) {
+            hits += index.findShopIdsWithinRadius(query[0], query[1], RADIUS_KM).size();
+        }
+        return hits;
+    }
+
+    private static List<FoodShop> randomShops(Random random, int count) {
+        List<FoodShop> shops = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            double[] point = randomPoint(random);
+            FoodShop shop = new FoodShop();
+            shop.setId(id);
+            shop.setLatitude(point[0]);
+            shop.setLongitude(point[1]);
+            shops.add(shop);
+        }
+        return shops;
+    }
+
+    // Roughly the bounding box of Sri Lanka
+    private static double[] randomPoint(Random random) {
+        return new double[]{5.9 + random.nextDouble() * 4, 79.6 + random.nextDouble() * 2.3};
+    }
+}
@@ -0,0 +1,265 @@
+package com.greenbite.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenbite.backend.dto.FoodItemDTO;
+import com.greenbite.backend.dto.OrderDTO;
+import com.greenbite.backend.event.FoodItemChangedEvent;
+import com.greenbite.backend.model.FoodItem;
+import com.greenbite.backend.model.Order;
+import com.greenbite.backend.repository.FoodItemRepository;
+import com.greenbite.backend.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs outside the test transaction so every order commits or rolls back on its own
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationServiceTest {
+
+    @Autowired
+    private FoodItemRepository foodItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Queue<FoodItemChangedEvent> events = new ConcurrentLinkedQueue<>();
+    private HotStockService hotStockService;
+    private OrderService orderService;
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        hotStockService = new HotStockService(jdbcTemplate, transactionManager, new ObjectMapper(), new CatalogVersions());
+        StockReservationService reservations = new StockReservationService(jdbcTemplate, hotStockService,
+                event -> events.add((FoodItemChangedEvent) event));
+        orderService = new OrderService(orderRepository, reservations, new OrderItemWriter(jdbcTemplate), event -> { });
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAll();
+        foodItemRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        FoodItem item = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 100, null, "", 1L, "Bakery", null, null, null));
+
+        assertEquals(100, placeConcurrently(item.getId(), 500));
+        assertEquals(0, foodItemRepository.findById(item.getId()).orElseThrow().getQuantity());
+        assertEquals(100, orderRepository.count());
+        // Lines of rejected orders roll back with them
+        assertEquals(100L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items", Long.class));
+        assertEquals(100, events.size());
+    }
+
+    @Test
+    void concurrentHotOrdersNeverOversellAndSettleOnFlush() throws Exception {
+        FoodItem item = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 100, null, "", 1L, "Bakery", null, null, null));
+        assertEquals(100, hotStockService.markHot(item.getId()));
+
+        assertEquals(100, placeConcurrently(item.getId(), 500));
+        assertEquals(0, hotStockService.availableByItem().get(item.getId()));
+        assertEquals(100, events.size());
+        // Written back by the flusher, not by the orders
+        assertEquals(100, foodItemRepository.findById(item.getId()).orElseThrow().getQuantity());
+        assertTrue(orderRepository.findAll().stream().noneMatch(Order::getStockSettled));
+
+        hotStockService.flush();
+
+        assertEquals(0, foodItemRepository.findById(item.getId()).orElseThrow().getQuantity());
+        assertTrue(orderRepository.findAll().stream().allMatch(Order::getStockSettled));
+    }
+
+    @Test
+    void recoveryRebuildsHotCountersFromUnsettledOrders() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 10, null, "", 1L, "Bakery", null, null, null));
+        FoodItem cake = foodItemRepository.save(new FoodItem(null, "Cake", null, 300.0, 4, null, "", 1L, "Bakery", null, null, null));
+        hotStockService.markHot(bread.getId());
+        transaction.executeWithoutResult(status -> orderService.createOrder(order(line(bread.getId(), 2), line(cake.getId(), 1))));
+        transaction.executeWithoutResult(status -> orderService.createOrder(order(line(bread.getId(), 3))));
+        Order garbled = orderRepository.save(new Order(null, 1L, 1L, "card", "pending", 100f, 0f, LocalDateTime.now(),
+                0, 0, "{not json", false, null));
+
+        // The process dies before the flusher runs
+        HotStockService restarted = new HotStockService(jdbcTemplate, transactionManager, new ObjectMapper(), new CatalogVersions());
+        restarted.recover();
+
+        assertEquals(Map.of(bread.getId(), 5), restarted.availableByItem());
+        assertEquals(10, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertEquals(3, foodItemRepository.findById(cake.getId()).orElseThrow().getQuantity());
+
+        assertEquals(2L, restarted.stats().get("recoveredOrders"));
+        assertEquals(1L, restarted.stats().get("unreadableOrders"));
+
+        restarted.flush();
+        assertEquals(5, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertEquals(2L, restarted.stats().get("settledOrders"));
+        assertEquals(0L, restarted.stats().get("unsettledOrders"));
+        HotStockService again = new HotStockService(jdbcTemplate, transactionManager, new ObjectMapper(), new CatalogVersions());
+        again.recover();
+        assertTrue(again.availableByItem().isEmpty());
+        assertFalse(orderRepository.findById(garbled.getId()).orElseThrow().getStockSettled());
+    }
+
+    @Test
+    void rolledBackOrderReturnsHotStock() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 1, null, "", 1L, "Bakery", null, null, null));
+        FoodItem cake = foodItemRepository.save(new FoodItem(null, "Cake", null, 300.0, 0, null, "", 1L, "Bakery", null, null, null));
+        hotStockService.markHot(bread.getId());
+
+        assertThrows(InsufficientStockException.class, () -> transaction.executeWithoutResult(
+                status -> orderService.createOrder(order(line(bread.getId(), 1), line(cake.getId(), 1)))));
+
+        assertEquals(1, hotStockService.availableByItem().get(bread.getId()));
+        hotStockService.flush();
+        assertEquals(1, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void coolingDownWritesBackAndReturnsOrdersToTheDatabase() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 5, null, "", 1L, "Bakery", null, null, null));
+        hotStockService.markHot(bread.getId());
+        transaction.executeWithoutResult(status -> orderService.createOrder(order(line(bread.getId(), 2))));
+
+        hotStockService.coolDown(bread.getId());
+        assertFalse(hotStockService.isHot(bread.getId()));
+        assertEquals(3, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+
+        transaction.executeWithoutResult(status -> orderService.createOrder(order(line(bread.getId(), 2))));
+        assertEquals(1, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void coolingDownWaitsForInFlightReservations() throws Exception {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 5, null, "", 1L, "Bakery", null, null, null));
+        hotStockService.markHot(bread.getId());
+        HotStockService.HotItem item = hotStockService.acquire(bread.getId());
+        assertTrue(hotStockService.tryTake(item, 1));
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> coolDown = pool.submit(() -> hotStockService.coolDown(bread.getId()));
+            Thread.sleep(50);
+            assertFalse(coolDown.isDone());
+
+            hotStockService.complete(item, 1, false);
+            coolDown.get(1, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertFalse(hotStockService.isHot(bread.getId()));
+        assertEquals(5, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+    }
+
+    // Orders of one unit each from 32 threads; returns how many were placed
+    private int placeConcurrently(Long itemId, int orders) throws Exception {
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < orders; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        transaction.executeWithoutResult(status -> orderService.createOrder(order(line(itemId, 1))));
+                        placed.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(orders, placed.get() + rejected.get());
+        return placed.get();
+    }
+
+    @Test
+    void failingLineRollsBackTheWholeOrder() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 5, null, "", 1L, "Bakery", null, null, null));
+        FoodItem cake = foodItemRepository.save(new FoodItem(null, "Cake", null, 300.0, 1, null, "", 1L, "Bakery", null, null, null));
+
+        InsufficientStockException e = assertThrows(InsufficientStockException.class, () -> transaction.executeWithoutResult(
+                status -> orderService.createOrder(order(line(bread.getId(), 2), line(cake.getId(), 1), line(cake.getId(), 1)))));
+
+        assertEquals(List.of(cake.getId()), e.getItemIds());
+        assertEquals(5, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        assertEquals(1, foodItemRepository.findById(cake.getId()).orElseThrow().getQuantity());
+        assertEquals(0, orderRepository.count());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void reservedLinesPublishStockChanges() {
+        FoodItem bread = foodItemRepository.save(new FoodItem(null, "Bread", null, 100.0, 5, null, "", 1L, "Bakery", null, null, null));
+
+        transaction.executeWithoutResult(status -> orderService.createOrder(order(line(bread.getId(), 2))));
+
+        assertEquals(3, foodItemRepository.findById(bread.getId()).orElseThrow().getQuantity());
+        FoodItemChangedEvent event = events.remove();
+        assertEquals(5, event.previous().quantity());
+        assertEquals(3, event.current().quantity());
+        assertThrows(IllegalArgumentException.class, () -> transaction.executeWithoutResult(
+                status -> orderService.createOrder(order(line(bread.getId(), -1)))));
+    }
+
+    private static FoodItemDTO line(Long itemId, int quantity) {
+        FoodItemDTO line = new FoodItemDTO();
+        line.setId(itemId);
+        line.setQuantity(quantity);
+        line.setPrice(100.0);
+        return line;
+    }
+
+    private static OrderDTO order(FoodItemDTO... lines) {
+        OrderDTO order = new OrderDTO();
+        order.setCustomerId(1L);
+        order.setShopId(1L);
+        order.setPaymentMethod("card");
+        order.setItems(List.of(lines));
+        return order;
+    }
+}
@@ -0,0 +1,120 @@
+package com.greenbite.backend.service;
+
+import com.greenbite.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserLocationBufferTest {
+
+    private static final UserLocationBuffer.Location OLD = new UserLocationBuffer.Location(6.9, 79.8);
+    private static final UserLocationBuffer.Location NEW = new UserLocationBuffer.Location(7.2, 80.6);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final UserLocationIndex userLocationIndex = mock(UserLocationIndex.class);
+    private final List<List<Object[]>> written = new ArrayList<>();
+    private UserLocationBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.existsById(anyLong())).thenAnswer(invocation -> (Long) invocation.getArgument(0) < 100);
+        buffer = new UserLocationBuffer(userRepository, jdbcTemplate, userLocationIndex, 2, 3600);
+    }
+
+    @Test
+    void anUpdateDuringAFlushKeepsTheNewestValue() {
+        buffer.update(1L, OLD.latitude(), OLD.longitude());
+        whileWriting(() -> {
+            // The batch holds the old value and readers still see it
+            assertEquals(OLD, buffer.bufferedLocation(1L));
+            buffer.update(1L, NEW.latitude(), NEW.longitude());
+            assertEquals(NEW, buffer.bufferedLocation(1L));
+        });
+
+        buffer.flush();
+        assertEquals(NEW, buffer.bufferedLocation(1L));
+        succeedWriting();
+        buffer.flush();
+
+        assertEquals(2, written.size());
+        assertEquals(7.2, written.get(1).get(0)[0]);
+        assertNull(buffer.bufferedLocation(1L));
+    }
+
+    @Test
+    void aFailedBatchIsRequeuedUnlessSupersededOrForgotten() {
+        buffer.update(1L, OLD.latitude(), OLD.longitude());
+        buffer.update(2L, OLD.latitude(), OLD.longitude());
+        buffer.update(3L, OLD.latitude(), OLD.longitude());
+        whileWriting(() -> {
+            buffer.update(2L, NEW.latitude(), NEW.longitude());
+            buffer.forget(3L);
+            throw new DataAccessResourceFailureException("Connection reset");
+        });
+
+        buffer.flush();
+
+        assertEquals(OLD, buffer.bufferedLocation(1L));
+        assertEquals(NEW, buffer.bufferedLocation(2L));
+        assertNull(buffer.bufferedLocation(3L));
+        assertEquals(1L, buffer.stats().get("failedFlushes"));
+        assertEquals(2L, buffer.stats().get("pending"));
+    }
+
+    @Test
+    void forgettingAUserDuringASuccessfulFlushDropsIt() {
+        buffer.update(1L, OLD.latitude(), OLD.longitude());
+        whileWriting(() -> buffer.forget(1L));
+
+        buffer.flush();
+
+        assertNull(buffer.bufferedLocation(1L));
+        assertEquals(0L, buffer.stats().get("pending"));
+        verify(userLocationIndex).remove(1L);
+    }
+
+    @Test
+    void existenceChecksAreCachedForABoundedNumberOfUsers() {
+        buffer.update(1L, OLD.latitude(), OLD.longitude());
+        buffer.update(1L, NEW.latitude(), NEW.longitude());
+        verify(userRepository, times(1)).existsById(1L);
+
+        // Only two users are remembered, so the first is checked again
+        buffer.update(2L, OLD.latitude(), OLD.longitude());
+        buffer.update(3L, OLD.latitude(), OLD.longitude());
+        buffer.update(1L, OLD.latitude(), OLD.longitude());
+        verify(userRepository, times(2)).existsById(1L);
+
+        assertThrows(RuntimeException.class, () -> buffer.update(100L, OLD.latitude(), OLD.longitude()));
+    }
+
+    // Runs the action while the batch is being written, then records the batch
+    private void whileWriting(Runnable action) {
+        doAnswer(invocation -> {
+            action.run();
+            written.add(invocation.getArgument(1));
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    private void succeedWriting() {
+        whileWriting(() -> { });
+    }
+}
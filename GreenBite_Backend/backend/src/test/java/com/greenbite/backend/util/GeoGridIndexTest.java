@@ -0,0 +1,98 @@
+package com.greenbite.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoGridIndexTest {
+
+    // lat, lon, radius; the small radii visit cells, the large ones scan every point
+    private static final double[][] QUERIES = {
+            {6.9271, 79.8612, 3}, {6.9271, 79.8612, 60}, {0.2, 179.95, 25}, {-0.1, -179.98, 150},
+            {52, 180, 400}, {89.9, 10, 300}, {-89.5, -120, 80}, {6.9271, 79.8612, 3000}, {10, -170, 12000}};
+
+    @Test
+    void matchesBruteForceHaversineAcrossTheAntimeridianAndPoles() {
+        Random random = new Random(11);
+        GeoGridIndex index = new GeoGridIndex(0.5);
+        Map<Long, double[]> points = new HashMap<>();
+        for (long id = 0; id < 20_000; id++) {
+            double[] point = randomPoint(random, id);
+            index.put(id, point[0], point[1]);
+            points.put(id, point);
+        }
+        // Moves across cells and removals keep the cells in step with the store
+        for (long id = 0; id < 20_000; id += 5) {
+            if (id % 10 == 0) {
+                index.remove(id);
+                points.remove(id);
+            } else {
+                double[] point = randomPoint(random, id + 1);
+                index.put(id, point[0], point[1]);
+                points.put(id, point);
+            }
+        }
+
+        assertEquals(points.size(), index.size());
+        for (double[] q : QUERIES) {
+            assertTrue(assertMatchesBruteForce(index, points, q) > 0, "no hits for r=" + q[2]);
+        }
+    }
+
+    @Test
+    void aSparseIndexScansEverythingAndStillMatches() {
+        // Fewer occupied cells than any query box, so every query takes the full scan
+        Random random = new Random(3);
+        GeoGridIndex index = new GeoGridIndex(0.05);
+        Map<Long, double[]> points = new HashMap<>();
+        for (long id = 0; id < 40; id++) {
+            double[] point = randomPoint(random, id);
+            index.put(id, point[0], point[1]);
+            points.put(id, point);
+        }
+
+        for (double[] q : QUERIES) {
+            assertMatchesBruteForce(index, points, q);
+        }
+        assertEquals(points.size(), index.findWithinRadius(0, 0, 20_100).size());
+    }
+
+    // Clusters around Colombo, on both sides of longitude 180 and near the poles, plus noise
+    private static double[] randomPoint(Random random, long id) {
+        return switch ((int) (id % 4)) {
+            case 0 -> new double[] {6.9 + random.nextGaussian() * 0.3, 79.86 + random.nextGaussian() * 0.3};
+            case 1 -> new double[] {random.nextGaussian() * 2, random.nextBoolean()
+                    ? 180 - random.nextDouble() * 2 : -180 + random.nextDouble() * 2};
+            case 2 -> new double[] {random.nextBoolean() ? 90 - random.nextDouble() * 3 : -90 + random.nextDouble() * 3,
+                    random.nextDouble() * 360 - 180};
+            default -> new double[] {random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180};
+        };
+    }
+
+    // Returns the number of hits
+    private static int assertMatchesBruteForce(GeoGridIndex index, Map<Long, double[]> points, double[] q) {
+        Set<Long> hits = new HashSet<>();
+        index.forEachWithinRadius(q[0], q[1], q[2], (id, distanceKm) -> {
+            double[] point = points.get(id);
+            assertEquals(GeoUtils.distanceKm(q[0], q[1], point[0], point[1]), distanceKm, 1e-6);
+            assertTrue(hits.add(id), "hit twice: " + id);
+        });
+
+        for (Map.Entry<Long, double[]> entry : points.entrySet()) {
+            double distance = GeoUtils.distanceKm(q[0], q[1], entry.getValue()[0], entry.getValue()[1]);
+            // Points within rounding of the edge may fall either way
+            if (Math.abs(distance - q[2]) > 1e-6) {
+                assertEquals(distance <= q[2], hits.contains(entry.getKey()),
+                        "point " + entry.getKey() + " for query " + q[0] + "," + q[1] + " r=" + q[2]);
+            }
+        }
+        return hits.size();
+    }
+}
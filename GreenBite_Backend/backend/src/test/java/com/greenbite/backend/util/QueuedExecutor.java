@@ -0,0 +1,29 @@
+package com.greenbite.backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Holds tasks until drain, so tests decide when the senders run
+public class QueuedExecutor implements Executor {
+
+    private final List<Runnable> pending = new ArrayList<>();
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        pending.add(task);
+    }
+
+    public void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                task = pending.remove(0);
+            }
+            task.run();
+        }
+    }
+}
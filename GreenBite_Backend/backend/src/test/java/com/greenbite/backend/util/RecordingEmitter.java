@@ -0,0 +1,61 @@
+package com.greenbite.backend.util;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// An emitter for the server-sent events tests. Keeps the name and the data of each event,
+// skipping the keepalive comments, and can be made to fail or to block in send.
+public class RecordingEmitter extends SseEmitter {
+
+    public final List<String> names = new ArrayList<>();
+    public final List<String> data = new ArrayList<>();
+
+    public volatile boolean failing;
+    public volatile RuntimeException failure;
+    private volatile CountDownLatch blocked;
+    private volatile CountDownLatch release;
+
+    // The next sends wait for release, after counting down blocked
+    public void blockSends(CountDownLatch blocked, CountDownLatch release) {
+        this.blocked = blocked;
+        this.release = release;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        if (failing) {
+            throw new IOException("Broken pipe");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (release != null) {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String text = builder.build().stream().map(part -> part.getData().toString()).collect(Collectors.joining());
+        String name = null;
+        String body = null;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("event:")) {
+                name = line.substring(6);
+            } else if (line.startsWith("data:")) {
+                body = line.substring(5);
+            }
+        }
+        if (name != null) {
+            names.add(name);
+            data.add(body);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.greenbite.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalarDistanceKernelTest {
+
+    @Test
+    void hitsAndDistancesMatchHaversine() {
+        Random random = new Random(7);
+        CoordinateStore store = new CoordinateStore();
+        Map<Long, double[]> points = new HashMap<>();
+        for (long id = 0; id < 5000; id++) {
+            // Half around Colombo, half anywhere, including both sides of the antimeridian
+            double lat = id % 2 == 0 ? 6.9 + random.nextGaussian() * 0.2 : random.nextDouble() * 180 - 90;
+            double lon = id % 2 == 0 ? 79.86 + random.nextGaussian() * 0.2 : random.nextDouble() * 360 - 180;
+            store.put(id, lat, lon);
+            points.put(id, new double[] {lat, lon});
+        }
+        // Removal moves the last slot into the hole
+        for (long id = 0; id < 5000; id += 7) {
+            store.remove(id);
+            points.remove(id);
+        }
+
+        double[][] queries = {{6.9271, 79.8612, 5}, {6.9271, 79.8612, 40}, {0, 179.99, 2000}, {-45, -179.5, 800}, {89, 0, 20000}};
+        ScalarDistanceKernel kernel = new ScalarDistanceKernel();
+        for (double[] q : queries) {
+            DistanceKernel.Query query = DistanceKernel.Query.of(q[0], q[1], q[2]);
+            Set<Long> hits = new HashSet<>();
+            store.filter(kernel, query, (slot, term) -> {
+                long id = store.idAt(slot);
+                double[] point = points.get(id);
+                assertEquals(GeoUtils.distanceKm(q[0], q[1], point[0], point[1]), DistanceKernel.Query.distanceKm(term), 1e-6);
+                hits.add(id);
+            });
+
+            for (Map.Entry<Long, double[]> entry : points.entrySet()) {
+                double distance = GeoUtils.distanceKm(q[0], q[1], entry.getValue()[0], entry.getValue()[1]);
+                // Points within rounding of the edge may fall either way
+                if (Math.abs(distance - q[2]) > 1e-6) {
+                    assertEquals(distance <= q[2], hits.contains(entry.getKey()), "point " + entry.getKey());
+                }
+            }
+            assertTrue(q[2] < 20000 || hits.size() == points.size());
+        }
+    }
+}
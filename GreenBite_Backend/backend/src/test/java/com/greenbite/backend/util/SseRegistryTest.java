@@ -0,0 +1,97 @@
+package com.greenbite.backend.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseRegistryTest {
+
+    private final QueuedExecutor executor = new QueuedExecutor();
+
+    @Test
+    void publishesToTheGroupsItIsGivenAndCountsTheEvents() {
+        SseRegistry<String> registry = registry(100, 0);
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        registry.register("a", first, false);
+        registry.register("b", second, false);
+
+        registry.publish(registry.group("a"), registry.event("created", Map.of("id", 1)));
+        executor.drain();
+
+        assertEquals(List.of("created"), first.names);
+        assertEquals(List.of("{\"id\":1}"), first.data);
+        assertTrue(second.names.isEmpty());
+        assertEquals(2, registry.groupCount());
+        assertEquals(1L, registry.stats().get("published"));
+    }
+
+    @Test
+    void brokenConnectionsAreUnsubscribedAndTheCapIsEnforced() {
+        SseRegistry<String> registry = registry(2, 0);
+        int[] removed = new int[1];
+        RecordingEmitter broken = new RecordingEmitter();
+        registry.register("a", broken, false, () -> removed[0]++);
+        registry.register("a", new RecordingEmitter(), false);
+        assertThrows(IllegalStateException.class, () -> registry.register("b", new RecordingEmitter(), false));
+
+        broken.failing = true;
+        registry.publish(registry.group("a"), registry.event("created", Map.of()));
+        executor.drain();
+
+        assertEquals(1, registry.size());
+        assertEquals(1, removed[0]);
+        registry.register("b", new RecordingEmitter(), false);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void emitterErrorsOtherThanIoAlsoUnsubscribe() {
+        SseRegistry<String> registry = registry(100, 0);
+        RecordingEmitter failing = new RecordingEmitter();
+        registry.register("a", failing, false);
+
+        failing.failure = new IllegalStateException("ResponseBodyEmitter has already completed");
+        registry.publish(registry.group("a"), registry.event("created", Map.of()));
+        executor.drain();
+
+        assertEquals(0, registry.size());
+        assertNull(registry.group("a"));
+    }
+
+    @Test
+    void theHeartbeatClosesASubscriberWhoseWriteIsStuck() throws Exception {
+        SseRegistry<String> registry = registry(100, 0);
+        RecordingEmitter stuck = new RecordingEmitter();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        stuck.blockSends(blocked, release);
+        registry.register("a", stuck, false);
+        registry.publish(registry.group("a"), registry.event("created", Map.of()));
+
+        // Sends on its own thread, as a sender would
+        Thread sender = new Thread(executor::drain);
+        sender.start();
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        Thread.sleep(5);
+
+        registry.heartbeat();
+        assertEquals(0, registry.size());
+        assertEquals(1L, registry.stats().get("stalled"));
+        release.countDown();
+        sender.join();
+    }
+
+    private SseRegistry<String> registry(int maxSubscribers, long sendTimeoutMillis) {
+        return new SseRegistry<>("test", new ObjectMapper(), 16, maxSubscribers, sendTimeoutMillis, executor);
+    }
+}
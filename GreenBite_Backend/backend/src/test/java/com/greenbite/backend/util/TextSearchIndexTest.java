@@ -0,0 +1,84 @@
+package com.greenbite.backend.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextSearchIndexTest {
+
+    private TextSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TextSearchIndex(10_000);
+        index.put(1, "Chicken Kottu", "Meals", "Spicy kottu roti with chicken");
+        index.put(2, "Vegetable Kottu", "Meals", "Kottu roti with fresh vegetables");
+        index.put(3, "Chocolate Cake", "Bakery", "Rich chocolate sponge");
+        index.put(4, "Fish Bun", "Bakery", "Spicy fish filling, contains chicken stock");
+    }
+
+    @Test
+    void ranksTitleMatchesAboveDescriptionMatches() {
+        assertEquals(List.of(1L, 4L), ids(index.search("chicken", 10, false)));
+    }
+
+    @Test
+    void requiresEveryToken() {
+        assertEquals(List.of(2L), ids(index.search("vegetable kottu", 10, false)));
+        assertTrue(index.search("chocolate kottu", 10, false).isEmpty());
+    }
+
+    @Test
+    void autocompleteMatchesPrefixOfLastToken() {
+        assertEquals(List.of(3L), ids(index.search("choc", 10, true)));
+        assertEquals(List.of(1L, 2L), ids(index.search("kottu ro", 10, true)));
+        assertTrue(index.search("choc", 10, false).isEmpty());
+    }
+
+    @Test
+    void toleratesOneTypo() {
+        assertEquals(List.of(3L), ids(index.search("chocolte", 10, false)));
+        assertEquals(List.of(3L), ids(index.search("chco", 10, true)));
+        assertEquals(List.of(1L, 2L), ids(index.search("kotu", 10, false)));
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisibleImmediately() {
+        index.put(3, "Butter Cake", "Bakery", "Soft butter sponge");
+        index.remove(4);
+
+        assertTrue(index.search("chocolate", 10, false).isEmpty());
+        assertEquals(List.of(3L), ids(index.search("butter", 10, false)));
+        assertEquals(List.of(1L), ids(index.search("chicken", 10, false)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void compactionKeepsLiveDocuments() {
+        for (long id = 100; id < 5_000; id++) {
+            index.put(id, "Biryani " + id, "Meals", "Biryani with raita");
+        }
+        for (long id = 100; id < 5_000; id++) {
+            index.remove(id);
+        }
+
+        assertEquals(4, index.size());
+        assertTrue(index.search("biryani", 10, false).isEmpty());
+        assertEquals(List.of(1L, 2L), ids(index.search("kottu", 10, false)));
+    }
+
+    @Test
+    void returnsOnlyTopK() {
+        List<TextSearchIndex.Hit> hits = index.search("spicy", 1, false);
+        assertEquals(1, hits.size());
+    }
+
+    private static List<Long> ids(List<TextSearchIndex.Hit> hits) {
+        return hits.stream().map(TextSearchIndex.Hit::id).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,121 @@
+package com.greenbite.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void firesEachTimerOnceAtItsTickAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        wheel.schedule(1, 5_000);
+        wheel.schedule(2, 70_000);         // level 1
+        wheel.schedule(3, 5_000_000);      // level 2
+        wheel.schedule(4, 400_000_000);    // level 3
+        wheel.schedule(5, 30_000_000_000L); // beyond the wheel's span
+        assertEquals(5, wheel.size());
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = 0; now <= 30_000_000_000L; now += now < 10_000_000 ? 1000 : 1_000_000) {
+            long at = now;
+            wheel.advance(now, id -> assertEquals(null, firedAt.put(id, at)));
+        }
+
+        assertEquals(Map.of(1L, 5_000L, 2L, 70_000L, 3L, 5_000_000L, 4L, 400_000_000L, 5L, 30_000_000_000L), firedAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduleMovesAndCancelRemoves() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        wheel.schedule(1, 10_000);
+        wheel.schedule(2, 10_000);
+        wheel.schedule(1, 200_000);
+        assertTrue(wheel.cancel(2));
+        assertFalse(wheel.cancel(2));
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(100_000, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(200_000, fired::add);
+        assertEquals(List.of(1L), fired);
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        TimingWheel wheel = new TimingWheel(1000, 50_000);
+        wheel.schedule(7, 1_000);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(50_500, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(51_000, fired::add);
+        assertEquals(List.of(7L), fired);
+    }
+
+    @Test
+    void callbacksMayRescheduleIntoThePastOrCancelTheRestOfTheSlot() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        wheel.schedule(1, 5_000);
+        wheel.schedule(2, 5_000);
+        wheel.schedule(3, 5_000);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(5_000, id -> {
+            fired.add(id + "@" + wheel.currentMillis());
+            if (id == 1) {
+                wheel.schedule(10, 4_000);
+            } else if (id == 3) {
+                wheel.cancel(2);
+            } else if (id == 2) {
+                wheel.cancel(3);
+            }
+        });
+
+        assertEquals(3, fired.size());
+        assertTrue(fired.contains("1@5000") && fired.contains("10@5000"));
+        assertEquals(0, wheel.size());
+        assertEquals(0, wheel.levelSizes()[0]);
+
+        wheel.advance(70_000, id -> fired.add(id + "@" + wheel.currentMillis()));
+        assertEquals(3, fired.size());
+    }
+
+    @Test
+    void matchesANaiveSchedulerUnderRandomChurn() {
+        Random random = new Random(42);
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        Map<Long, Long> expected = new HashMap<>();
+        long now = 0;
+
+        for (int step = 0; step < 20_000; step++) {
+            long id = random.nextInt(2_000);
+            if (random.nextInt(5) == 0) {
+                assertEquals(expected.remove(id) != null, wheel.cancel(id));
+            } else {
+                long deadline = now + 1000L * random.nextInt(random.nextBoolean() ? 100 : 500_000);
+                wheel.schedule(id, deadline);
+                expected.put(id, Math.max(deadline, now + 1000));
+            }
+            if (random.nextInt(10) == 0) {
+                now += 1000L * random.nextInt(5_000);
+                long at = now;
+                wheel.advance(now, firedId -> {
+                    Long deadline = expected.remove(firedId);
+                    assertTrue(deadline != null && deadline <= at, "fired early or twice: " + firedId);
+                });
+                expected.values().forEach(deadline -> assertTrue(deadline > at, "missed a due timer"));
+            }
+            assertEquals(expected.size(), wheel.size());
+        }
+    }
+}